@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.bench;
+
+import jenkins.plugins.slideshow.model.HtmlPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HtmlPage.HtmlPageDescriptor#decorateIfNeeded(String)} on fragments and on whole documents.
+ * Doesn't need Jenkins.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HtmlBenchmark {
+
+    private static final String LINE = "  <p>Lorem ipsum dolor sit amet, consectetur adipiscing elit.</p>\n";
+
+    /**
+     * The approximate size of the html in characters.
+     */
+    @Param({"1024", "1048576" })
+    public int size;
+
+    /**
+     * If the html already is a whole document.
+     */
+    @Param({"false", "true" })
+    public boolean document;
+
+    private String html;
+
+    /**
+     * Builds the html.
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(size + LINE.length());
+        builder.append("\n  ");
+        if (document) {
+            builder.append(HtmlPage.HTML_DECORATION_START);
+        }
+        while (builder.length() < size) {
+            builder.append(LINE);
+        }
+        if (document) {
+            builder.append(HtmlPage.HTML_DECORATION_END);
+        }
+        html = builder.toString();
+    }
+
+    /**
+     * Decorates the html.
+     *
+     * @return the decorated html.
+     */
+    @Benchmark
+    public String decorateIfNeeded() {
+        return HtmlPage.HtmlPageDescriptor.decorateIfNeeded(html);
+    }
+}
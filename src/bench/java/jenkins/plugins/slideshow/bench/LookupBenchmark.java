@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.bench;
+
+import jenkins.plugins.slideshow.HideHeadersPageDecorator;
+import jenkins.plugins.slideshow.SlideShows;
+import jenkins.plugins.slideshow.model.SlideShow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding shows: {@link SlideShows#getShow(String)} and {@link HideHeadersPageDecorator#getSlideShow()},
+ * which runs on every page that Jenkins renders.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LookupBenchmark {
+
+    private static final int PAGES = 5;
+
+    /**
+     * The number of shows.
+     */
+    @Param({"10", "1000" })
+    public int shows;
+
+    private MockJenkins jenkins;
+    private HideHeadersPageDecorator decorator;
+    private String name;
+
+    /**
+     * Installs Jenkins and creates the shows.
+     *
+     * @throws Exception if so.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        jenkins = MockJenkins.install();
+        for (int i = 0; i < shows; i++) {
+            jenkins.getPlugin().addShow(MockJenkins.createShow("Show " + i, PAGES));
+        }
+        name = "show " + (shows / 2);
+        decorator = new HideHeadersPageDecorator();
+    }
+
+    /**
+     * Removes Jenkins.
+     *
+     * @throws Exception if so.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        jenkins.uninstall();
+    }
+
+    /**
+     * A show by name, in a different case than it was created with.
+     *
+     * @return the show.
+     */
+    @Benchmark
+    public SlideShow getShow() {
+        return SlideShows.getInstance().getShow(name);
+    }
+
+    /**
+     * The decorator on a page opened by a show.
+     *
+     * @param request the request of the thread.
+     * @return the show.
+     */
+    @Benchmark
+    public SlideShow decoratorHit(FromShow request) {
+        return decorator.getSlideShow();
+    }
+
+    /**
+     * The decorator on a page that wasn't opened by a show, which is the common case.
+     *
+     * @param request the request of the thread.
+     * @return null.
+     */
+    @Benchmark
+    public SlideShow decoratorMiss(FromJob request) {
+        return decorator.getSlideShow();
+    }
+
+    /**
+     * A request for a job page from a slide show.
+     */
+    @State(Scope.Thread)
+    public static class FromShow {
+
+        /**
+         * Sets the request of the thread.
+         *
+         * @param state the benchmark.
+         * @throws Exception if so.
+         */
+        @Setup
+        public void setUp(LookupBenchmark state) throws Exception {
+            MockJenkins.setCurrentRequest(MockJenkins.request(
+                    MockJenkins.ROOT_URL + SlideShows.URL_NAME + "/show/Show%20" + (state.shows / 2) + "/",
+                    "/job/foo/"));
+        }
+    }
+
+    /**
+     * A request for a job page from another Jenkins page.
+     */
+    @State(Scope.Thread)
+    public static class FromJob {
+
+        /**
+         * Sets the request of the thread.
+         *
+         * @throws Exception if so.
+         */
+        @Setup
+        public void setUp() throws Exception {
+            MockJenkins.setCurrentRequest(MockJenkins.request(MockJenkins.ROOT_URL + "view/All/", "/job/foo/"));
+        }
+    }
+}
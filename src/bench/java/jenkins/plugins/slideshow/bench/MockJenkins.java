@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.bench;
+
+import hudson.Plugin;
+import hudson.PluginWrapper;
+import hudson.Util;
+import hudson.model.Action;
+import hudson.model.Hudson;
+import hudson.security.Permission;
+import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.SlideShows;
+import jenkins.plugins.slideshow.model.HtmlPage;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import jenkins.plugins.slideshow.model.UrlPage;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A mocked Jenkins singleton for the benchmarks, with a temporary root directory and the plugin started on it.
+ * Only what the plugin asks Jenkins for is there.
+ * The mocks are stub only, so that they don't remember every call made during a benchmark.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class MockJenkins {
+
+    /**
+     * The root URL of the mocked Jenkins.
+     */
+    public static final String ROOT_URL = "http://jenkins.example.com:8080/";
+
+    /**
+     * The host name in {@link #ROOT_URL}.
+     */
+    public static final String HOST = "jenkins.example.com";
+
+    private static final int PAGE_TIME = 10;
+
+    private final File root;
+    private final Hudson hudson;
+    private volatile PluginImpl plugin;
+
+    /**
+     * Standard constructor.
+     *
+     * @param root the root directory.
+     * @throws Exception if the mocks could not be put in place.
+     */
+    private MockJenkins(File root) throws Exception {
+        this.root = root;
+        hudson = mock(Hudson.class, withSettings().stubOnly());
+        when(hudson.getRootDir()).thenReturn(root);
+        when(hudson.getRootUrl()).thenReturn(ROOT_URL);
+        List<Action> actions = new ArrayList<Action>();
+        actions.add(new SlideShows());
+        when(hudson.getActions()).thenReturn(actions);
+        when(hudson.hasPermission(any(Permission.class))).thenReturn(true);
+        when(hudson.getPlugin(PluginImpl.class)).thenAnswer(new Answer<PluginImpl>() {
+            @Override
+            public PluginImpl answer(InvocationOnMock invocation) {
+                return plugin;
+            }
+        });
+        setField(Hudson.class, null, "theInstance", hudson);
+        restart();
+    }
+
+    /**
+     * Puts a mocked Jenkins with an empty root directory in place and starts the plugin on it.
+     *
+     * @return the mocked Jenkins.
+     * @throws Exception if so.
+     */
+    public static MockJenkins install() throws Exception {
+        File root = File.createTempFile("slideshow-bench", "");
+        if (!root.delete() || !root.mkdirs()) {
+            throw new IOException("Could not create " + root);
+        }
+        return new MockJenkins(root);
+    }
+
+    /**
+     * Removes the mocked Jenkins and its root directory.
+     *
+     * @throws Exception if so.
+     */
+    public void uninstall() throws Exception {
+        plugin.stop();
+        setField(Hudson.class, null, "theInstance", null);
+        Util.deleteRecursive(root);
+    }
+
+    /**
+     * Starts a new instance of the plugin, that reads the shows saved by the previous one.
+     *
+     * @return the new instance.
+     * @throws Exception if so.
+     */
+    public PluginImpl restart() throws Exception {
+        PluginImpl started = new PluginImpl();
+        PluginWrapper wrapper = mock(PluginWrapper.class, withSettings().stubOnly());
+        when(wrapper.getShortName()).thenReturn("slideshow");
+        setField(Plugin.class, started, "wrapper", wrapper);
+        plugin = started;
+        started.start();
+        return started;
+    }
+
+    /**
+     * The currently started plugin.
+     *
+     * @return the plugin.
+     */
+    public PluginImpl getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Makes a request the current Stapler request of the calling thread.
+     *
+     * @param request the request, or null to clear it.
+     * @throws Exception if so.
+     */
+    @SuppressWarnings("unchecked")
+    public static void setCurrentRequest(StaplerRequest request) throws Exception {
+        Field field = Stapler.class.getDeclaredField("CURRENT_REQUEST");
+        field.setAccessible(true);
+        ((ThreadLocal<StaplerRequest>)field.get(null)).set(request);
+    }
+
+    /**
+     * A mocked request for a page that was opened by a slide show.
+     *
+     * @param referer  the referer.
+     * @param pathInfo the path of the requested page.
+     * @return the request.
+     */
+    public static StaplerRequest request(String referer, String pathInfo) {
+        StaplerRequest request = mock(StaplerRequest.class, withSettings().stubOnly());
+        when(request.getReferer()).thenReturn(referer);
+        when(request.getPathInfo()).thenReturn(pathInfo);
+        when(request.getServerName()).thenReturn(HOST);
+        when(request.getRootPath()).thenReturn(ROOT_URL);
+        return request;
+    }
+
+    /**
+     * Creates a show with the given number of pages, every other a url page and a html page.
+     *
+     * @param name  the name of the show.
+     * @param pages the number of pages.
+     * @return the show.
+     */
+    public static SlideShow createShow(String name, int pages) {
+        List<Page> list = new ArrayList<Page>(pages);
+        for (int i = 0; i < pages; i++) {
+            if (i % 2 == 0) {
+                list.add(new UrlPage(new Page.Time(PAGE_TIME), "http://example.com/" + i));
+            } else {
+                list.add(new HtmlPage(null, "<h1>Page " + i + "</h1>"));
+            }
+        }
+        return new SlideShow(name, list);
+    }
+
+    /**
+     * Sets a field that isn't otherwise reachable.
+     *
+     * @param owner  the class declaring the field.
+     * @param target the object, or null for a static field.
+     * @param name   the name of the field.
+     * @param value  the value.
+     * @throws Exception if so.
+     */
+    private static void setField(Class<?> owner, Object target, String name, Object value) throws Exception {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
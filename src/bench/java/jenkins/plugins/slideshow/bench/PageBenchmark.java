@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.bench;
+
+import jenkins.plugins.slideshow.CachedContent;
+import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.model.SlideShow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a display asks for to play a show: {@link SlideShow#getFirstPage()} and then a chain of
+ * {@link SlideShow#getNextPage(int)}, which builds the page data for every call,
+ * against the pre-serialized {@link SlideShow#getPageResponse(int)} that the display endpoints serve.
+ * Run with <code>-prof gc</code> to compare the allocations per call. The pre-serialized path should allocate
+ * nothing beyond {@link #rootUrl()}, which only measures what the mocked Jenkins allocates to answer its root URL.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PageBenchmark {
+
+    /**
+     * The number of pages in the show.
+     */
+    @Param({"10", "1000" })
+    public int pages;
+
+    private MockJenkins jenkins;
+    private SlideShow show;
+
+    /**
+     * Installs Jenkins and creates the show.
+     *
+     * @throws Exception if so.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        jenkins = MockJenkins.install();
+        show = MockJenkins.createShow("bench", pages);
+        jenkins.getPlugin().addShow(show);
+    }
+
+    /**
+     * Removes Jenkins.
+     *
+     * @throws Exception if so.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        jenkins.uninstall();
+    }
+
+    /**
+     * The first page.
+     *
+     * @return the page.
+     */
+    @Benchmark
+    public SlideShow.PagePojo firstPage() {
+        return show.getFirstPage();
+    }
+
+    /**
+     * The next page, each thread going round the show.
+     *
+     * @param cursor where the thread is in the show.
+     * @return the page.
+     */
+    @Benchmark
+    public SlideShow.PagePojo nextPage(Cursor cursor) {
+        SlideShow.PagePojo page = show.getNextPage(cursor.index);
+        cursor.index = page.getIndex();
+        return page;
+    }
+
+    /**
+     * The pre-serialized data of the next page, each thread going round the show.
+     *
+     * @param cursor where the thread is in the show.
+     * @return the page data.
+     */
+    @Benchmark
+    public CachedContent nextPageResponse(Cursor cursor) {
+        int next = show.getNextIndex(cursor.index);
+        cursor.index = next;
+        return show.getPageResponse(next);
+    }
+
+    /**
+     * The pre-serialized data of the first page.
+     *
+     * @return the page data.
+     */
+    @Benchmark
+    public CachedContent pageResponse() {
+        return show.getPageResponse(0);
+    }
+
+    /**
+     * The root URL lookup that every pre-serialized response does, as a baseline for the allocations
+     * of the mocked Jenkins.
+     *
+     * @return the root URL.
+     */
+    @Benchmark
+    public String rootUrl() {
+        return PluginImpl.getRootUrl();
+    }
+
+    /**
+     * The page a thread is at.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = -1;
+    }
+}
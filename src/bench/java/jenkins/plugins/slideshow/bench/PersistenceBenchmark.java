@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.bench;
+
+import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.model.SlideShow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading all shows of {@link PluginImpl}.
+ * Each operation is slow enough to be timed one at a time.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class PersistenceBenchmark {
+
+    private static final int PAGES = 10;
+
+    /**
+     * The number of shows.
+     */
+    @Param({"10", "100", "1000", "10000" })
+    public int shows;
+
+    private MockJenkins jenkins;
+    private List<SlideShow> created;
+
+    /**
+     * Installs Jenkins, creates the shows and saves them once so that there is something to load.
+     *
+     * @throws Exception if so.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        jenkins = MockJenkins.install();
+        created = new ArrayList<SlideShow>(shows);
+        PluginImpl plugin = jenkins.getPlugin();
+        for (int i = 0; i < shows; i++) {
+            SlideShow show = MockJenkins.createShow("Show " + i, PAGES);
+            plugin.addShow(show);
+            created.add(show);
+        }
+        save();
+    }
+
+    /**
+     * Removes Jenkins.
+     *
+     * @throws Exception if so.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        jenkins.uninstall();
+    }
+
+    /**
+     * Saves every show and the list of names, as after an import.
+     *
+     * @throws Exception if so.
+     */
+    @Benchmark
+    public void save() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        for (SlideShow show : created) {
+            plugin.save(show);
+        }
+        plugin.save();
+    }
+
+    /**
+     * Starts the plugin and loads every show, as the first listing after a restart.
+     *
+     * @return the shows.
+     * @throws Exception if so.
+     */
+    @Benchmark
+    public List<SlideShow> load() throws Exception {
+        return jenkins.restart().getShows();
+    }
+}
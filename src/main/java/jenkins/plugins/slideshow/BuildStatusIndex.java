@@ -0,0 +1,383 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory index of the status of every job's last build, kept up to date from build and item events.
+ * Each change gets a sequence number so that build walls can ask for just what changed since they last asked.
+ * Removed jobs are kept as tombstones for {@link #TOMBSTONE_MS} so that walls can drop them,
+ * a wall that hasn't asked since before a tombstone was purged has to start over.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class BuildStatusIndex {
+
+    /**
+     * How long (in milliseconds) a removed job is remembered.
+     */
+    public static final long TOMBSTONE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(0);
+    private static volatile long purged = 0;
+    private static final ConcurrentMap<String, Status> STATUSES = new ConcurrentHashMap<String, Status>();
+
+    /**
+     * Utility class.
+     */
+    private BuildStatusIndex() {
+    }
+
+    /**
+     * The sequence number of the latest change.
+     *
+     * @return the sequence number.
+     */
+    public static long getSequence() {
+        return SEQUENCE.get();
+    }
+
+    /**
+     * If changes after the given sequence number may have been forgotten,
+     * so that the caller has to ask for everything again.
+     *
+     * @param since the sequence number the caller has seen.
+     * @return true if so.
+     */
+    public static boolean isForgotten(long since) {
+        return since > 0 && since < purged;
+    }
+
+    /**
+     * The statuses that changed after the given sequence number, including jobs that were removed.
+     *
+     * @param since   the sequence number the caller has seen, or 0 for everything.
+     * @param include the jobs to include, matched against the full name, or null for all jobs.
+     * @return the changed statuses, sorted by full name.
+     */
+    public static List<Status> changesSince(long since, Pattern include) {
+        List<Status> list = new ArrayList<Status>();
+        for (Status status : STATUSES.values()) {
+            if (status.sequence > since && (since > 0 || !status.removed)) {
+                if (include == null || include.matcher(status.fullName).matches()) {
+                    list.add(status);
+                }
+            }
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Updates the status of the job from its last build.
+     *
+     * @param job the job.
+     */
+    public static void update(Job job) {
+        Run last = job.getLastBuild();
+        String result = null;
+        boolean building = false;
+        int number = 0;
+        if (last != null) {
+            building = last.isBuilding();
+            number = last.getNumber();
+            Run completed = last;
+            if (building) {
+                completed = last.getPreviousBuild();
+            }
+            if (completed != null) {
+                Result r = completed.getResult();
+                if (r != null) {
+                    result = r.toString();
+                }
+            }
+        }
+        STATUSES.put(job.getFullName(), new Status(job.getFullName(), job.getDisplayName(), job.getUrl(),
+                result, building, number, false, SEQUENCE.incrementAndGet(), System.currentTimeMillis()));
+    }
+
+    /**
+     * Marks the job as removed, so that walls that already show it can drop it.
+     *
+     * @param fullName the full name of the job.
+     */
+    public static void remove(String fullName) {
+        long now = System.currentTimeMillis();
+        purge(now);
+        Status old = STATUSES.get(fullName);
+        if (old != null) {
+            STATUSES.put(fullName, new Status(fullName, old.displayName, old.url,
+                    old.result, false, old.number, true, SEQUENCE.incrementAndGet(), now));
+        }
+    }
+
+    /**
+     * Forgets the removed jobs that were removed more than {@link #TOMBSTONE_MS} ago.
+     *
+     * @param now the current time.
+     */
+    static void purge(long now) {
+        Iterator<Map.Entry<String, Status>> iterator = STATUSES.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Status status = iterator.next().getValue();
+            if (status.removed && now - status.time > TOMBSTONE_MS) {
+                iterator.remove();
+                synchronized (BuildStatusIndex.class) {
+                    purged = Math.max(purged, status.sequence);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes every job from scratch.
+     */
+    public static void rebuild() {
+        Hudson hudson = Hudson.getInstance();
+        if (hudson == null) {
+            return;
+        }
+        for (Job job : hudson.getAllItems(Job.class)) {
+            update(job);
+        }
+        purge(System.currentTimeMillis());
+    }
+
+    /**
+     * The status of one job.
+     */
+    public static final class Status implements Comparable<Status> {
+        private final String fullName;
+        private final String displayName;
+        private final String url;
+        private final String result;
+        private final boolean building;
+        private final int number;
+        private final boolean removed;
+        private final long sequence;
+        private final long time;
+
+        //CS IGNORE ParameterNumber FOR NEXT 16 LINES. REASON: Immutable value object.
+        /**
+         * Standard constructor.
+         *
+         * @param fullName    the full name of the job.
+         * @param displayName the display name of the job.
+         * @param url         the relative URL of the job.
+         * @param result      the result of the last completed build, or null if there is none.
+         * @param building    if the job is building.
+         * @param number      the number of the last build, or 0.
+         * @param removed     if the job has been removed.
+         * @param sequence    the sequence number of the change.
+         * @param time        when the change happened.
+         */
+        private Status(String fullName, String displayName, String url, String result,
+                       boolean building, int number, boolean removed, long sequence, long time) {
+            this.fullName = fullName;
+            this.displayName = displayName;
+            this.url = url;
+            this.result = result;
+            this.building = building;
+            this.number = number;
+            this.removed = removed;
+            this.sequence = sequence;
+            this.time = time;
+        }
+
+        /**
+         * The full name of the job.
+         *
+         * @return the name.
+         */
+        public String getFullName() {
+            return fullName;
+        }
+
+        /**
+         * An opaque key for the job that is the same for all of its statuses.
+         *
+         * @return a digest of the full name.
+         */
+        public String getKey() {
+            return CachedContent.digest(CachedContent.encode(fullName));
+        }
+
+        /**
+         * The display name of the job.
+         *
+         * @return the name.
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * The relative URL of the job.
+         *
+         * @return the URL.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * The result of the last completed build.
+         *
+         * @return the result, or null if there is none.
+         */
+        public String getResult() {
+            return result;
+        }
+
+        /**
+         * If the job is building.
+         *
+         * @return true if so.
+         */
+        public boolean isBuilding() {
+            return building;
+        }
+
+        /**
+         * The number of the last build.
+         *
+         * @return the number, or 0 if there is none.
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * If the job has been removed.
+         *
+         * @return true if so.
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        /**
+         * The sequence number of the change.
+         *
+         * @return the sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        @Override
+        public int compareTo(Status o) {
+            return fullName.compareTo(o.fullName);
+        }
+    }
+
+    /**
+     * Updates the status of a job when its builds start, complete or are deleted.
+     */
+    @Extension
+    public static class RunUpdates extends RunListener<Run> {
+
+        /**
+         * Default constructor.
+         */
+        public RunUpdates() {
+            super(Run.class);
+        }
+
+        @Override
+        public void onStarted(Run run, TaskListener listener) {
+            update(run.getParent());
+        }
+
+        @Override
+        public void onCompleted(Run run, TaskListener listener) {
+            update(run.getParent());
+        }
+
+        @Override
+        public void onDeleted(Run run) {
+            update(run.getParent());
+        }
+    }
+
+    /**
+     * Keeps the set of jobs in the index up to date.
+     */
+    @Extension
+    public static class ItemUpdates extends ItemListener {
+
+        @Override
+        public void onLoaded() {
+            rebuild();
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            if (item instanceof Job) {
+                update((Job)item);
+            }
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof Job) {
+                remove(item.getFullName());
+            }
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            if (item instanceof Job) {
+                String parent = item.getParent().getFullName();
+                String oldFullName = oldName;
+                if (parent.length() > 0) {
+                    oldFullName = parent + "/" + oldName;
+                }
+                remove(oldFullName);
+                update((Job)item);
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Util;
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A pre-encoded response body together with its strong ETag and, when it pays off, a gzipped variant
+ * with an ETag of its own.
+ * Built once when the content changes and then written as is to every request,
+ * answering conditional requests with 304 Not Modified.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class CachedContent {
+
+    /**
+     * The character encoding of all text content.
+     */
+    public static final String ENCODING = "UTF-8";
+
+    /**
+     * Content smaller than this is never compressed.
+     */
+    private static final int GZIP_THRESHOLD = 256;
+
+    /**
+     * Added to the digest in the ETag of the gzipped variant.
+     */
+    private static final String GZIP_SUFFIX = "-gz";
+
+    private final String contentType;
+    private final byte[] content;
+    private final byte[] gzipped;
+    private final String etag;
+    private final String gzippedEtag;
+
+    /**
+     * Standard constructor.
+     *
+     * @param contentType the content type including any charset.
+     * @param content     the encoded content.
+     */
+    public CachedContent(String contentType, byte[] content) {
+        this.contentType = contentType;
+        this.content = content;
+        String digest = digest(content);
+        this.etag = "\"" + digest + "\"";
+        this.gzippedEtag = "\"" + digest + GZIP_SUFFIX + "\"";
+        this.gzipped = gzip(content);
+    }
+
+    /**
+     * Creates a cached content from a string encoded in {@link #ENCODING}.
+     *
+     * @param contentType the content type, the charset will be appended.
+     * @param text        the content.
+     * @return the cached content.
+     */
+    public static CachedContent fromText(String contentType, String text) {
+        return new CachedContent(contentType + ";charset=" + ENCODING, encode(text));
+    }
+
+    /**
+     * Reads a text resource of the plugin, encoded in {@link #ENCODING}.
+     *
+     * @param owner       the class the resource name is relative to.
+     * @param name        the name of the resource.
+     * @param contentType the content type, the charset will be appended.
+     * @return the cached content.
+     * @throws IOException if the resource is missing or can't be read.
+     * @see Class#getResourceAsStream(String)
+     */
+    public static CachedContent fromResource(Class<?> owner, String name, String contentType) throws IOException {
+        return fromText(contentType, readResource(owner, name));
+    }
+
+    /**
+     * Reads a text resource of the plugin, encoded in {@link #ENCODING}.
+     *
+     * @param owner the class the resource name is relative to.
+     * @param name  the name of the resource.
+     * @return the text.
+     * @throws IOException if the resource is missing or can't be read.
+     */
+    public static String readResource(Class<?> owner, String name) throws IOException {
+        InputStream in = owner.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing resource " + name);
+        }
+        try {
+            return IOUtils.toString(in, ENCODING);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Encodes the text in {@link #ENCODING}.
+     *
+     * @param text the text.
+     * @return the bytes.
+     */
+    public static byte[] encode(String text) {
+        try {
+            return text.getBytes(ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(ENCODING + " is not supported!", e);
+        }
+    }
+
+    /**
+     * Calculates a hex digest of the data, used as the ETag.
+     *
+     * @param data the data.
+     * @return the digest.
+     */
+    public static String digest(byte[] data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            return Util.toHexString(md.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not supported!", e);
+        }
+    }
+
+    /**
+     * Compresses the data if it is big enough and the result is smaller.
+     *
+     * @param data the data.
+     * @return the compressed data or null if it isn't worth it.
+     */
+    private static byte[] gzip(byte[] data) {
+        if (data.length < GZIP_THRESHOLD) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            GZIPOutputStream gz = new GZIPOutputStream(out);
+            gz.write(data);
+            gz.close();
+            byte[] compressed = out.toByteArray();
+            if (compressed.length >= data.length) {
+                return null;
+            }
+            return compressed;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The content type including any charset.
+     *
+     * @return the content type.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * The encoded content.
+     *
+     * @return the content.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * The strong ETag of the content, including the surrounding quotes.
+     *
+     * @return the ETag.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * The strong ETag of the gzipped content, including the surrounding quotes.
+     * It differs from {@link #getEtag()} since the bytes differ.
+     *
+     * @return the ETag.
+     */
+    public String getGzippedEtag() {
+        return gzippedEtag;
+    }
+
+    /**
+     * If the request will get the gzipped content.
+     *
+     * @param request the request.
+     * @return true if so.
+     */
+    public boolean isGzipped(StaplerRequest request) {
+        return gzipped != null && acceptsGzip(request);
+    }
+
+    /**
+     * The ETag of the variant that the request will get.
+     *
+     * @param request the request.
+     * @return the ETag.
+     */
+    public String getEtag(StaplerRequest request) {
+        if (isGzipped(request)) {
+            return gzippedEtag;
+        }
+        return etag;
+    }
+
+    /**
+     * Checks if the request is a conditional request that already has the variant of this content it would get.
+     *
+     * @param request the request.
+     * @return true if the client has an up to date copy.
+     */
+    public boolean isNotModified(StaplerRequest request) {
+        return matches(request.getHeader("If-None-Match"), getEtag(request));
+    }
+
+    /**
+     * Checks if an If-None-Match header matches the ETag.
+     * The header is a comma separated list of ETags, or <code>*</code>,
+     * and is compared weakly as it should be for If-None-Match.
+     *
+     * @param ifNoneMatch the header, or null.
+     * @param etag        the ETag, including the surrounding quotes.
+     * @return true if so.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The gzipped content, or null if the content is too small to be worth compressing.
+     *
+     * @return the compressed content.
+     */
+    public byte[] getGzipped() {
+        return gzipped;
+    }
+
+    /**
+     * Checks if the client accepts gzipped content.
+     *
+     * @param request the request.
+     * @return true if so.
+     */
+    public static boolean acceptsGzip(StaplerRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    /**
+     * Writes the content to the response, or 304 if the client already has it.
+     * The client is told to revalidate before using its copy again.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void serve(StaplerRequest request, StaplerResponse response) throws IOException {
+        serve(request, response, "no-cache");
+    }
+
+    /**
+     * Writes the content to the response, or 304 if the client already has it.
+     *
+     * @param request      the request.
+     * @param response     the response.
+     * @param cacheControl the Cache-Control header to send.
+     * @throws IOException if so.
+     */
+    public void serve(StaplerRequest request, StaplerResponse response, String cacheControl) throws IOException {
+        boolean gzip = isGzipped(request);
+        response.setHeader("ETag", getEtag(request));
+        response.setHeader("Cache-Control", cacheControl);
+        response.setHeader("Vary", "Accept-Encoding");
+        if (isNotModified(request)) {
+            response.setStatus(StaplerResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(contentType);
+        byte[] body = content;
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            body = gzipped;
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import jenkins.plugins.slideshow.model.SlideShow;
+import org.kohsuke.stapler.StaplerRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The registry of displays that are currently playing slide shows.
+ * Displays identify themselves with a client id that they send along with their slide show requests
+ * in the {@link #CLIENT_HEADER} header or the {@link #CLIENT_PARAMETER} parameter,
+ * a display that hasn't been heard from in {@link #IDLE_MS} is considered gone.
+ * Background work for a show, like refreshing snapshots, is suspended while no display is playing it.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@Extension
+public class Displays extends PeriodicWork implements SnapshotCache.Activity {
+
+    /**
+     * The request header that carries the client id of the display.
+     */
+    public static final String CLIENT_HEADER = "X-Slideshow-Client";
+
+    /**
+     * The request header that carries the index of the page the display is showing.
+     */
+    public static final String PAGE_HEADER = "X-Slideshow-Page";
+
+    /**
+     * The request parameter that carries the client id of the display, if not sent as a header.
+     */
+    public static final String CLIENT_PARAMETER = "client";
+
+    /**
+     * The request parameter that carries the index of the page the display is showing, if not sent as a header.
+     */
+    public static final String PAGE_PARAMETER = "page";
+
+    /**
+     * How often (in milliseconds) a display that has nothing else to ask for sends a heartbeat.
+     */
+    public static final long HEARTBEAT_MS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * A display that hasn't been heard from in this long is gone.
+     */
+    public static final long IDLE_MS = HEARTBEAT_MS * 4;
+
+    /**
+     * The largest number of displays kept track of.
+     */
+    private static final int MAX_DISPLAYS = 1000;
+
+    private static final Pattern CLIENT_ID = Pattern.compile("[A-Za-z0-9_\\-]{1,64}");
+
+    private static volatile Displays instance;
+
+    private final ConcurrentMap<String, Display> displays = new ConcurrentHashMap<String, Display>();
+    private final ConcurrentMap<String, Long> lastSeenPerShow = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * The singleton instance.
+     *
+     * @return the instance.
+     */
+    public static Displays getInstance() {
+        Displays cached = instance;
+        if (cached == null) {
+            cached = Hudson.getInstance().getExtensionList(PeriodicWork.class).get(Displays.class);
+            instance = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return HEARTBEAT_MS;
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        prune(System.currentTimeMillis());
+    }
+
+    /**
+     * Drops the displays and shows that haven't been heard from in {@link #IDLE_MS}.
+     *
+     * @param now the current time.
+     */
+    private void prune(long now) {
+        Iterator<Display> iterator = displays.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastSeen > IDLE_MS) {
+                iterator.remove();
+            }
+        }
+        Iterator<Map.Entry<String, Long>> shows = lastSeenPerShow.entrySet().iterator();
+        while (shows.hasNext()) {
+            if (now - shows.next().getValue() > IDLE_MS) {
+                shows.remove();
+            }
+        }
+    }
+
+    /**
+     * Records a heartbeat from the display that made the request, if it sent a client id.
+     *
+     * @param request the request.
+     * @param show    the show the display is playing.
+     * @param index   the index of the page the display is showing, or -1 to take it from the request.
+     */
+    public void heartbeat(StaplerRequest request, SlideShow show, int index) {
+        String client = valueOf(request, CLIENT_HEADER, CLIENT_PARAMETER);
+        if (client == null || !CLIENT_ID.matcher(client).matches()) {
+            return;
+        }
+        int page = index;
+        if (page < 0) {
+            page = parseIndex(valueOf(request, PAGE_HEADER, PAGE_PARAMETER));
+        }
+        long now = System.currentTimeMillis();
+        lastSeenPerShow.put(show.getName(), now);
+        Display display = displays.get(client);
+        if (display == null) {
+            if (displays.size() >= MAX_DISPLAYS) {
+                prune(now);
+                if (displays.size() >= MAX_DISPLAYS) {
+                    return;
+                }
+            }
+            display = new Display(client);
+            Display existing = displays.putIfAbsent(client, display);
+            if (existing != null) {
+                display = existing;
+            }
+        }
+        display.update(show.getName(), page, request.getRemoteAddr(), now);
+    }
+
+    /**
+     * Reads a value from the request header, or the parameter if there is no such header.
+     *
+     * @param request   the request.
+     * @param header    the name of the header.
+     * @param parameter the name of the parameter.
+     * @return the value, or null if there is none.
+     */
+    private static String valueOf(StaplerRequest request, String header, String parameter) {
+        String value = request.getHeader(header);
+        if (value == null) {
+            value = request.getParameter(parameter);
+        }
+        return value;
+    }
+
+    /**
+     * Parses a page index parameter.
+     *
+     * @param value the parameter.
+     * @return the index, or -1 if there is none.
+     */
+    private static int parseIndex(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * If any display has been playing the show within {@link #IDLE_MS}.
+     *
+     * @param showName the name of the show.
+     * @return true if so.
+     */
+    public boolean isWatched(String showName) {
+        Long lastSeen = lastSeenPerShow.get(showName);
+        return lastSeen != null && System.currentTimeMillis() - lastSeen <= IDLE_MS;
+    }
+
+    @Override
+    public boolean isActive(String owner) {
+        return isWatched(owner);
+    }
+
+    /**
+     * The displays that are currently playing, sorted by show and client id.
+     *
+     * @return the displays.
+     */
+    public List<Display> getDisplays() {
+        List<Display> list = new ArrayList<Display>(displays.values());
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * A display playing a slide show.
+     */
+    public static final class Display implements Comparable<Display> {
+        private final String clientId;
+        private volatile String show;
+        private volatile int page;
+        private volatile String address;
+        private volatile long lastSeen;
+
+        /**
+         * Standard constructor.
+         *
+         * @param clientId the client id of the display.
+         */
+        private Display(String clientId) {
+            this.clientId = clientId;
+        }
+
+        /**
+         * Records a heartbeat.
+         *
+         * @param showName the show it plays.
+         * @param index    the page it shows, or -1 if it didn't tell.
+         * @param remote   the address it called from.
+         * @param now      the current time.
+         */
+        private void update(String showName, int index, String remote, long now) {
+            if (!showName.equals(this.show)) {
+                this.page = -1;
+            }
+            this.show = showName;
+            if (index >= 0) {
+                this.page = index;
+            }
+            this.address = remote;
+            this.lastSeen = now;
+        }
+
+        /**
+         * The client id of the display.
+         *
+         * @return the id.
+         */
+        public String getClientId() {
+            return clientId;
+        }
+
+        /**
+         * The name of the show the display plays.
+         *
+         * @return the name.
+         */
+        public String getShow() {
+            return show;
+        }
+
+        /**
+         * The index of the page the display shows, or -1 if unknown.
+         *
+         * @return the index.
+         */
+        public int getPage() {
+            return page;
+        }
+
+        /**
+         * The address the display last called from.
+         *
+         * @return the address.
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        /**
+         * When the display was last heard from.
+         *
+         * @return the time in milliseconds.
+         */
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * How long ago the display was last heard from, for display.
+         *
+         * @return the time span.
+         */
+        public String getLastSeenString() {
+            return Messages.Displays_Ago(Util.getTimeSpanString(System.currentTimeMillis() - lastSeen));
+        }
+
+        @Override
+        public int compareTo(Display o) {
+            int c = String.valueOf(show).compareTo(String.valueOf(o.show));
+            if (c == 0) {
+                c = clientId.compareTo(o.clientId);
+            }
+            return c;
+        }
+    }
+}
@@ -26,14 +26,19 @@ package jenkins.plugins.slideshow;
 
 import hudson.Extension;
 import hudson.model.PageDecorator;
+import jenkins.plugins.slideshow.metrics.SlideShowMetrics;
 import jenkins.plugins.slideshow.model.SlideShow;
 import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
 
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static jenkins.plugins.slideshow.SlideShows.URL_NAME;
 
@@ -49,6 +54,32 @@ public class HideHeadersPageDecorator extends PageDecorator {
 
     private static final Logger logger = Logger.getLogger(HideHeadersPageDecorator.class.getName());
 
+    /**
+     * Matches an absolute referer pointing into a slide show.
+     * Group 1 is the host, which may be a bracketed IPv6 address, and group 2 is the name of the show.
+     */
+    private static final Pattern SHOW_REFERER = Pattern.compile(
+            "^[a-zA-Z][a-zA-Z0-9+.\\-]*://(?:[^/?#@]*@)?(\\[[\\w:.%]+\\]|[^/?#:\\[\\]]+)(?::\\d+)?"
+                    + "[^?#]*?/" + URL_NAME + "/(?:[^?#]*?/)?show/([^/?#]+)");
+
+    /**
+     * Maximum number of referers kept in the resolution cache.
+     */
+    static final int CACHE_SIZE = 256;
+
+    /**
+     * A resolution for referers that don't point to any existing show.
+     */
+    private static final Resolution NO_SHOW = new Resolution(null, null);
+
+    private final Map<String, Resolution> cache = new LinkedHashMap<String, Resolution>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private long cacheVersion = -1;
+
     /**
      * Default constructor.
      */
@@ -58,45 +89,171 @@ public class HideHeadersPageDecorator extends PageDecorator {
 
     /**
      * Tries to retrieve the SlideShow from the referer field of the request.
+     * Requests that don't come from a slide show are rejected before anything is parsed,
+     * and resolved referers are kept in a small LRU cache that is dropped when the shows change.
      *
      * @return the SlideShow that referred to this page or null if none was found.
      */
     public SlideShow getSlideShow() {
-        //TODO find out a way to map the referer via stapler
         StaplerRequest request = Stapler.getCurrentRequest();
-        try {
-            if (request != null && request.getReferer() != null && !request.getPathInfo().contains(URL_NAME)) {
-                URI referer = new URI(request.getReferer());
-                if (request.getServerName().equals(referer.getHost())) {
-                    logger.fine("Have a server name");
-                    int index = referer.getPath().indexOf(URL_NAME);
-                    if (index > 0) {
-                        logger.fine("Is a slide show");
-                        String slideShowsPath = referer.getPath().substring(index + URL_NAME.length());
-                        logger.fine("SlideShow is: " + slideShowsPath);
-                        if (slideShowsPath != null && slideShowsPath.length() > 0) {
-                            String[] paths = slideShowsPath.split("/");
-                            for (int i = 0; i < paths.length; i++) {
-                                if (paths[i].equals("show") && i < (paths.length - 1)) {
-                                    return SlideShows.getInstance().getShow(paths[i + 1]);
-                                }
-                            }
-                            return null;
-                        } else {
-                            return null;
-                        }
-                    } else {
-                        return null;
-                    }
-                } else {
-                    return null;
-                }
-            } else {
-                return null;
-            }
-        } catch (URISyntaxException e) {
-            logger.log(Level.WARNING, "Bad referrer syntax ", e);
+        if (request == null) {
+            return null;
+        }
+        String referer = request.getReferer();
+        if (referer == null || referer.indexOf(URL_NAME) < 0) {
+            return null;
+        }
+        String pathInfo = request.getPathInfo();
+        if (pathInfo != null && pathInfo.contains(URL_NAME)) {
+            return null;
+        }
+        SlideShow show = getSlideShow(referer, request.getServerName());
+        SlideShowMetrics.getInstance().decoratorEvaluated(show != null);
+        return show;
+    }
+
+    /**
+     * Finds the show that the referer points to, if the referer is on the same host as the request.
+     *
+     * @param referer    the referer.
+     * @param serverName the host the request was sent to.
+     * @return the show or null.
+     */
+    SlideShow getSlideShow(String referer, String serverName) {
+        Resolution resolution = resolve(referer);
+        if (resolution.show != null && isSameHost(resolution.host, serverName)) {
+            return resolution.show;
+        }
+        return null;
+    }
+
+    /**
+     * Compares two host names, ignoring case and the brackets around IPv6 addresses,
+     * which some servlet containers leave in the server name and some don't.
+     *
+     * @param host       the host of the referer.
+     * @param serverName the server name of the request.
+     * @return true if they are the same host.
+     */
+    static boolean isSameHost(String host, String serverName) {
+        if (host == null || serverName == null) {
+            return false;
+        }
+        return unbracket(host).equalsIgnoreCase(unbracket(serverName));
+    }
+
+    /**
+     * Removes the brackets around an IPv6 address.
+     *
+     * @param host the host.
+     * @return the host without brackets.
+     */
+    private static String unbracket(String host) {
+        if (host.length() > 1 && host.charAt(0) == '[' && host.charAt(host.length() - 1) == ']') {
+            return host.substring(1, host.length() - 1);
+        }
+        return host;
+    }
+
+    /**
+     * Splits a referer that points into a slide show into its host and the name of the show.
+     *
+     * @param referer the referer.
+     * @return the host and the name, still encoded, or null if the referer doesn't point into a show.
+     */
+    static String[] split(String referer) {
+        Matcher matcher = SHOW_REFERER.matcher(referer);
+        if (!matcher.find()) {
             return null;
         }
+        return new String[]{matcher.group(1), matcher.group(2)};
+    }
+
+    /**
+     * The number of referers in the cache.
+     *
+     * @return the number.
+     */
+    int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Finds out what show the referer points to, using the cache when possible.
+     *
+     * @param referer the referer.
+     * @return the resolution, never null.
+     */
+    private Resolution resolve(String referer) {
+        long version = PluginImpl.getInstance().getShowsVersion();
+        synchronized (cache) {
+            if (version != cacheVersion) {
+                cache.clear();
+                cacheVersion = version;
+            }
+            Resolution resolution = cache.get(referer);
+            if (resolution != null) {
+                return resolution;
+            }
+        }
+        Resolution resolution = parse(referer);
+        synchronized (cache) {
+            if (version == cacheVersion) {
+                cache.put(referer, resolution);
+            }
+        }
+        return resolution;
+    }
+
+    /**
+     * Parses the referer and looks up the show it points to.
+     *
+     * @param referer the referer.
+     * @return the resolution, never null.
+     */
+    private Resolution parse(String referer) {
+        String[] parts = split(referer);
+        if (parts == null) {
+            return NO_SHOW;
+        }
+        String name = parts[1];
+        if (name.indexOf('%') >= 0) {
+            try {
+                name = URLDecoder.decode(name.replace("+", "%2B"), "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                logger.log(Level.WARNING, "Bad referrer encoding ", e);
+                return NO_SHOW;
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.WARNING, "Bad referrer syntax ", e);
+                return NO_SHOW;
+            }
+        }
+        logger.fine("SlideShow is: " + name);
+        SlideShow show = SlideShows.getInstance().getShow(name);
+        if (show == null) {
+            return NO_SHOW;
+        }
+        return new Resolution(parts[0], show);
+    }
+
+    /**
+     * What a referer resolved to.
+     */
+    private static final class Resolution {
+        private final String host;
+        private final SlideShow show;
+
+        /**
+         * Standard constructor.
+         *
+         * @param host the host of the referer.
+         * @param show the show the referer points to, or null.
+         */
+        private Resolution(String host, SlideShow show) {
+            this.host = host;
+            this.show = show;
+        }
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Html with placeholders like <code>${job:foo/lastBuild.result}</code> or <code>${view:All/failing}</code>,
+ * parsed once into a list of segments that are written straight to the response.
+ * The values of the placeholders come from {@link TemplateValues}, which caches them for a short time.
+ * Placeholders that aren't understood are left in the output as they are.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class HtmlTemplate {
+
+    private static final String START = "${";
+    private static final String END = "}";
+
+    private final List<Segment> segments;
+    private final int placeholders;
+
+    /**
+     * Standard constructor.
+     *
+     * @param segments     the compiled segments.
+     * @param placeholders how many of the segments are placeholders.
+     */
+    private HtmlTemplate(List<Segment> segments, int placeholders) {
+        this.segments = Collections.unmodifiableList(segments);
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Parses the html into a template.
+     *
+     * @param html the html.
+     * @return the template.
+     */
+    public static HtmlTemplate compile(String html) {
+        List<Segment> segments = new ArrayList<Segment>();
+        int count = 0;
+        int position = 0;
+        StringBuilder literal = new StringBuilder();
+        while (position < html.length()) {
+            int start = html.indexOf(START, position);
+            if (start < 0) {
+                break;
+            }
+            int end = html.indexOf(END, start + START.length());
+            if (end < 0) {
+                break;
+            }
+            String expression = html.substring(start + START.length(), end);
+            Placeholder placeholder = Placeholder.parse(expression);
+            literal.append(html, position, start);
+            if (placeholder == null) {
+                literal.append(html, start, end + END.length());
+            } else {
+                if (literal.length() > 0) {
+                    segments.add(new Literal(literal.toString()));
+                    literal.setLength(0);
+                }
+                segments.add(placeholder);
+                count++;
+            }
+            position = end + END.length();
+        }
+        literal.append(html, position, html.length());
+        if (literal.length() > 0) {
+            segments.add(new Literal(literal.toString()));
+        }
+        return new HtmlTemplate(segments, count);
+    }
+
+    /**
+     * Writes the template with the current values of its placeholders.
+     *
+     * @param writer where to write.
+     * @throws IOException if so.
+     */
+    public void write(Writer writer) throws IOException {
+        for (Segment segment : segments) {
+            segment.write(writer);
+        }
+    }
+
+    /**
+     * The number of placeholders that were understood.
+     *
+     * @return the count.
+     */
+    public int getPlaceholderCount() {
+        return placeholders;
+    }
+
+    /**
+     * A piece of a compiled template.
+     */
+    private abstract static class Segment {
+        /**
+         * Writes the segment.
+         *
+         * @param writer where to write.
+         * @throws IOException if so.
+         */
+        abstract void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Html that is written as is.
+     */
+    private static final class Literal extends Segment {
+        private final String text;
+
+        /**
+         * Standard constructor.
+         *
+         * @param text the html.
+         */
+        private Literal(String text) {
+            this.text = text;
+        }
+
+        @Override
+        void write(Writer writer) throws IOException {
+            writer.write(text);
+        }
+    }
+
+    /**
+     * A placeholder like <code>job:foo/lastBuild.result</code>, split into its parts when compiled.
+     */
+    private static final class Placeholder extends Segment {
+        private final String key;
+        private final TemplateValues.Kind kind;
+        private final String target;
+        private final String property;
+
+        /**
+         * Standard constructor.
+         *
+         * @param key      the whole expression, used as cache key.
+         * @param kind     what kind of object the placeholder is about.
+         * @param target   the name of the object.
+         * @param property the property of the object.
+         */
+        private Placeholder(String key, TemplateValues.Kind kind, String target, String property) {
+            this.key = key;
+            this.kind = kind;
+            this.target = target;
+            this.property = property;
+        }
+
+        /**
+         * Parses an expression of the form <code>kind:target/property</code>.
+         *
+         * @param expression the expression, without the surrounding <code>${}</code>.
+         * @return the placeholder, or null if the expression isn't understood.
+         */
+        private static Placeholder parse(String expression) {
+            int colon = expression.indexOf(':');
+            int slash = expression.lastIndexOf('/');
+            if (colon <= 0 || slash <= colon + 1 || slash == expression.length() - 1) {
+                return null;
+            }
+            TemplateValues.Kind kind = TemplateValues.Kind.forPrefix(expression.substring(0, colon).trim());
+            if (kind == null) {
+                return null;
+            }
+            String property = expression.substring(slash + 1).trim();
+            if (!kind.supports(property)) {
+                return null;
+            }
+            return new Placeholder(expression, kind, expression.substring(colon + 1, slash).trim(), property);
+        }
+
+        @Override
+        void write(Writer writer) throws IOException {
+            writer.write(TemplateValues.get(key, kind, target, property));
+        }
+    }
+}
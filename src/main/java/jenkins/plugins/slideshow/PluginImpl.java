@@ -26,17 +26,29 @@ package jenkins.plugins.slideshow;
 
 import hudson.Extension;
 import hudson.Plugin;
+import hudson.Util;
+import hudson.XmlFile;
 import hudson.model.Hudson;
 import hudson.security.Permission;
 import hudson.security.PermissionGroup;
+import jenkins.plugins.slideshow.metrics.SlideShowMetrics;
 import jenkins.plugins.slideshow.model.SlideShow;
 import org.kohsuke.stapler.Stapler;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Main Plugin Singleton.
@@ -89,12 +101,95 @@ public class PluginImpl extends Plugin {
             Messages._ConfigureSlideShows(),
             CREATE);
 
+    private static final Logger logger = Logger.getLogger(PluginImpl.class.getName());
+
+    /**
+     * The name of the directory under the Jenkins root where each show is stored in its own file.
+     */
+    public static final String SHOWS_DIRECTORY = "slideshow";
+
+    /**
+     * The prefix of the directory that an import moves replaced show files aside to.
+     */
+    private static final String BACKUP_PREFIX = ".backup-";
+
+    /**
+     * Only read from configurations written before each show got its own file.
+     * Moved to the separate files by {@link #migrate()} and then cleared.
+     */
     private List<SlideShow> shows;
 
+    /**
+     * The names of all shows, in order.
+     * This is all that is stored in the plugin's own configuration file, the shows are in {@link #SHOWS_DIRECTORY}.
+     */
+    private List<String> showNames;
+
+    /**
+     * All shows in order, loaded from disk on first access.
+     */
+    private transient volatile List<ShowHandle> handles = new CopyOnWriteArrayList<ShowHandle>();
+
+    /**
+     * Case insensitive name index over {@link #handles} for lock-free lookups.
+     * Kept up to date by every method that adds, removes or renames a show.
+     */
+    private transient volatile ConcurrentMap<String, ShowHandle> showIndex = new ConcurrentHashMap<String, ShowHandle>();
+
+    /**
+     * Incremented every time the set of shows or their names change.
+     */
+    private transient volatile long showsVersion = 0;
+
+    private static volatile PluginImpl instance;
+
     @Override
     public void start() throws Exception {
         super.start();
         load();
+        List<ShowHandle> list = migrate();
+        if (list == null) {
+            list = new LinkedList<ShowHandle>();
+            if (showNames != null) {
+                for (String name : showNames) {
+                    list.add(new ShowHandle(name, null));
+                }
+            }
+        }
+        reindex(list);
+        instance = this;
+        SlideShowMetrics.register();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        SlideShowMetrics.unregister();
+        super.stop();
+    }
+
+    /**
+     * Moves the shows from a configuration file written by an older version of the plugin,
+     * where all shows were stored together with the plugin, into one file per show.
+     *
+     * @return the migrated shows or null if there was nothing to migrate.
+     * @throws IOException if the shows could not be saved.
+     */
+    private synchronized List<ShowHandle> migrate() throws IOException {
+        if (shows == null) {
+            return null;
+        }
+        logger.info("Moving " + shows.size() + " slide shows to separate files.");
+        List<ShowHandle> list = new LinkedList<ShowHandle>();
+        List<String> names = new LinkedList<String>();
+        for (SlideShow show : shows) {
+            getShowFile(show.getName()).write(show);
+            list.add(new ShowHandle(show.getName(), show));
+            names.add(show.getName());
+        }
+        showNames = names;
+        shows = null;
+        super.save();
+        return list;
     }
 
     /**
@@ -103,48 +198,432 @@ public class PluginImpl extends Plugin {
      * @return the instance.
      */
     public static PluginImpl getInstance() {
-        return Hudson.getInstance().getPlugin(PluginImpl.class);
+        PluginImpl cached = instance;
+        if (cached == null) {
+            cached = Hudson.getInstance().getPlugin(PluginImpl.class);
+        }
+        return cached;
     }
 
     /**
-     * Made the method synchronized.
+     * Saves the list of show names.
+     * Use {@link #save(SlideShow)} to save a show itself.
      *
      * @throws IOException if so.
      * @see hudson.Plugin#save()
      */
     @Override
     public synchronized void save() throws IOException {
+        List<String> names = new LinkedList<String>();
+        for (ShowHandle handle : handles) {
+            names.add(handle.name);
+        }
+        showNames = names;
+        long start = System.nanoTime();
         super.save();
+        SlideShowMetrics.getInstance().saved(start, getConfigXml().getFile().length());
     }
 
     /**
-     * Gets a reference to the list of SlideShows.
+     * Saves one show to its own file, without touching any other show.
+     *
+     * @param show the show to save.
+     * @throws IOException if so.
+     */
+    public void save(SlideShow show) throws IOException {
+        long start = System.nanoTime();
+        XmlFile file = getShowFile(show.getName());
+        synchronized (show) {
+            file.write(show);
+        }
+        SlideShowMetrics.getInstance().saved(start, file.getFile().length());
+    }
+
+    /**
+     * The directory where each show is stored in its own file.
+     *
+     * @return the directory.
+     */
+    public static File getShowsDirectory() {
+        return new File(Hudson.getInstance().getRootDir(), SHOWS_DIRECTORY);
+    }
+
+    /**
+     * The file that the show with the given name is stored in.
+     *
+     * @param name the name of the show.
+     * @return the file.
+     */
+    static XmlFile getShowFile(String name) {
+        return new XmlFile(Hudson.XSTREAM, new File(getShowsDirectory(), Util.rawEncode(name) + ".xml"));
+    }
+
+    /**
+     * Reads the show with the given name from its file.
+     *
+     * @param name the name.
+     * @return the show or null if it couldn't be read.
+     */
+    private static SlideShow loadShow(String name) {
+        XmlFile file = getShowFile(name);
+        if (!file.exists()) {
+            logger.warning("There is no file for the slide show " + name);
+            return null;
+        }
+        try {
+            return (SlideShow)file.read();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to load the slide show " + name, e);
+            return null;
+        }
+    }
+
+    /**
+     * All the SlideShows, loading the ones that haven't been loaded yet.
+     * The list is a snapshot, use {@link #addShow(SlideShow)} and {@link #removeShow(SlideShow)} to change it.
      *
      * @return the list.
      */
-    public synchronized List<SlideShow> getShows() {
-        if (shows == null) {
-            shows = new LinkedList<SlideShow>();
+    public List<SlideShow> getShows() {
+        List<SlideShow> list = new ArrayList<SlideShow>(handles.size());
+        for (ShowHandle handle : handles) {
+            SlideShow show = handle.get();
+            if (show != null) {
+                list.add(show);
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * The names of all SlideShows, without loading any of them.
+     *
+     * @return the names in order.
+     */
+    public List<String> getShowNames() {
+        List<String> names = new ArrayList<String>(handles.size());
+        for (ShowHandle handle : handles) {
+            names.add(handle.name);
         }
-        return shows;
+        return names;
     }
 
     /**
-     * Sets the list of SlideShows.
+     * Replaces all the SlideShows.
+     * The caller is responsible for saving each show and the list of names.
      *
-     * @param shows the shows to add.
+     * @param shows the shows.
      */
     public synchronized void setShows(List<SlideShow> shows) {
-        this.shows = shows;
+        List<ShowHandle> list = new LinkedList<ShowHandle>();
+        for (SlideShow show : shows) {
+            list.add(new ShowHandle(show.getName(), show));
+        }
+        reindex(list);
     }
 
     /**
      * Adds a SlideShow to the list.
+     * The caller is responsible for saving the show and the list of names.
      *
      * @param show the slide show to add.
+     * @throws IllegalArgumentException if there already is a show with the same name, ignoring case,
+     *                                  since it would share its file with the new one.
      */
     public synchronized void addShow(SlideShow show) {
-        getShows().add(show);
+        if (hasShow(show.getName())) {
+            throw new IllegalArgumentException("The name " + show.getName() + " is taken.");
+        }
+        ShowHandle handle = new ShowHandle(show.getName(), show);
+        handles.add(handle);
+        showIndex.put(indexKey(show.getName()), handle);
+        showsVersion++;
+    }
+
+    /**
+     * Removes a SlideShow from the list, saves the list of names and then deletes the show's file.
+     * If the list can't be saved the show is put back and its file is kept.
+     *
+     * @param show the slide show to remove.
+     * @return true if the show was in the list.
+     * @throws IOException if the list of names could not be saved.
+     */
+    public synchronized boolean removeShow(SlideShow show) throws IOException {
+        ShowHandle handle = showIndex.get(indexKey(show.getName()));
+        if (handle == null || handle.get() != show) {
+            return false;
+        }
+        List<ShowHandle> previous = new LinkedList<ShowHandle>(handles);
+        List<ShowHandle> list = new LinkedList<ShowHandle>(previous);
+        list.remove(handle);
+        reindex(list);
+        boolean saved = false;
+        try {
+            save();
+            saved = true;
+        } finally {
+            if (!saved) {
+                reindex(previous);
+            }
+        }
+        deleteShowFile(show.getName());
+        SlideShowMetrics.getInstance().forget(show.getName());
+        return true;
+    }
+
+    /**
+     * Renames a SlideShow, saves it under the new name together with the list of names
+     * and then deletes the file with the old name.
+     *
+     * @param show    the slide show to rename.
+     * @param newName the new name.
+     * @throws IOException if the show or the list of names could not be saved.
+     * @throws IllegalArgumentException if another show has the new name, ignoring case.
+     */
+    public synchronized void renameShow(SlideShow show, String newName) throws IOException {
+        String oldName = show.getName();
+        ShowHandle old = showIndex.get(indexKey(oldName));
+        ShowHandle taken = showIndex.get(indexKey(newName));
+        if (taken != null && taken != old) {
+            throw new IllegalArgumentException("The name " + newName + " is taken.");
+        }
+        List<ShowHandle> previous = new LinkedList<ShowHandle>(handles);
+        List<ShowHandle> list = new LinkedList<ShowHandle>(previous);
+        ShowHandle handle = new ShowHandle(newName, show);
+        int position = list.indexOf(old);
+        if (position >= 0) {
+            list.set(position, handle);
+        } else {
+            list.add(handle);
+        }
+        show.setName(newName);
+        boolean saved = false;
+        try {
+            save(show);
+            reindex(list);
+            save();
+            saved = true;
+        } finally {
+            if (!saved) {
+                show.setName(oldName);
+                reindex(previous);
+            }
+        }
+        ViewIndex.showing(show);
+        SlideShowMetrics.getInstance().forget(oldName);
+        if (!indexKey(oldName).equals(indexKey(newName))) {
+            deleteShowFile(oldName);
+        }
+    }
+
+    /**
+     * Puts imported shows in place, all in one step, and saves the list of names once.
+     * Each imported show has already been written to a file of its own,
+     * which is moved to where the show is stored and read when the show is first needed.
+     * Shows with the same name as an imported show are replaced where they are in the list,
+     * the other imported shows are added at the end.
+     * <p/>
+     * The files that are replaced are moved aside first. If any file can't be moved or the list of names
+     * can't be saved, everything is moved back and nothing has changed.
+     * The files of removed shows are only deleted once the new list is saved.
+     *
+     * @param imported the names of the imported shows in order, mapped to the files they are written to.
+     * @param replace  if the shows that aren't imported should be removed.
+     * @return the number of shows that were removed.
+     * @throws IOException if a file could not be moved in place or the list of names could not be saved.
+     * @see ShowTransfer
+     */
+    public synchronized int importShows(Map<String, File> imported, boolean replace) throws IOException {
+        File backup = new File(getShowsDirectory(), BACKUP_PREFIX + System.currentTimeMillis());
+        List<File[]> moved = new LinkedList<File[]>();
+        List<ShowHandle> previous = new LinkedList<ShowHandle>(handles);
+        List<String> removed = new LinkedList<String>();
+        boolean committed = false;
+        try {
+            Map<String, ShowHandle> incoming = new LinkedHashMap<String, ShowHandle>();
+            for (Map.Entry<String, File> entry : imported.entrySet()) {
+                File target = getShowFile(entry.getKey()).getFile();
+                File aside = null;
+                if (target.exists()) {
+                    if (!backup.isDirectory() && !backup.mkdirs()) {
+                        throw new IOException("Could not create " + backup);
+                    }
+                    aside = new File(backup, target.getName());
+                    if (!target.renameTo(aside)) {
+                        throw new IOException("Could not move " + target + " aside");
+                    }
+                }
+                moved.add(new File[]{target, aside});
+                if (!entry.getValue().renameTo(target)) {
+                    throw new IOException("Could not move " + entry.getValue() + " to " + target);
+                }
+                incoming.put(indexKey(entry.getKey()), new ShowHandle(entry.getKey(), null));
+            }
+            List<ShowHandle> list = new LinkedList<ShowHandle>();
+            for (ShowHandle handle : previous) {
+                ShowHandle replacement = incoming.remove(indexKey(handle.name));
+                if (replacement != null) {
+                    list.add(replacement);
+                } else if (replace) {
+                    removed.add(handle.name);
+                } else {
+                    list.add(handle);
+                }
+            }
+            list.addAll(incoming.values());
+            reindex(list);
+            save();
+            committed = true;
+        } finally {
+            if (!committed) {
+                reindex(previous);
+                rollback(moved);
+            }
+        }
+        for (String name : removed) {
+            deleteShowFile(name);
+            SlideShowMetrics.getInstance().forget(name);
+        }
+        try {
+            Util.deleteRecursive(backup);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not delete " + backup, e);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Moves the files that an import has replaced back in place, in reverse order.
+     *
+     * @param moved pairs of the replaced file and where it was moved aside to, or null if it didn't exist.
+     */
+    private static void rollback(List<File[]> moved) {
+        for (int i = moved.size() - 1; i >= 0; i--) {
+            File target = moved.get(i)[0];
+            File aside = moved.get(i)[1];
+            if (target.exists() && !target.delete()) {
+                logger.severe("Could not remove the imported " + target);
+            }
+            if (aside != null && !aside.renameTo(target)) {
+                logger.severe("Could not move " + aside + " back to " + target);
+            }
+        }
+    }
+
+    /**
+     * Deletes the file of the show with the given name.
+     *
+     * @param name the name of the show.
+     */
+    private static void deleteShowFile(String name) {
+        File file = getShowFile(name).getFile();
+        if (file.exists() && !file.delete()) {
+            logger.warning("Could not delete " + file);
+        }
+    }
+
+    /**
+     * Finds the SlideShow with the given name, or null if there is none by that name.
+     * The lookup goes through the name index and takes no locks, the show is loaded from disk on first access.
+     *
+     * @param name the name to search, case insensitive.
+     * @return the SlideShow.
+     */
+    public SlideShow getShow(String name) {
+        if (name == null) {
+            return null;
+        }
+        ShowHandle handle = showIndex.get(indexKey(name));
+        if (handle == null) {
+            return null;
+        }
+        return handle.get();
+    }
+
+    /**
+     * If there is a show with the given name, ignoring case, without loading it.
+     *
+     * @param name the name.
+     * @return true if so.
+     */
+    public boolean hasShow(String name) {
+        return name != null && showIndex.containsKey(indexKey(name));
+    }
+
+    /**
+     * Replaces the shows and rebuilds the name index from them.
+     *
+     * @param list the shows.
+     */
+    private synchronized void reindex(List<ShowHandle> list) {
+        ConcurrentMap<String, ShowHandle> index = new ConcurrentHashMap<String, ShowHandle>();
+        for (ShowHandle handle : list) {
+            index.put(indexKey(handle.name), handle);
+        }
+        handles = new CopyOnWriteArrayList<ShowHandle>(list);
+        showIndex = index;
+        showsVersion++;
+    }
+
+    /**
+     * A number that changes every time a show is added, removed or renamed.
+     * Can be used by caches to detect that what they hold is stale.
+     *
+     * @return the current version of the list of shows.
+     */
+    public long getShowsVersion() {
+        return showsVersion;
+    }
+
+    /**
+     * The key that a show name is stored under in the name index.
+     *
+     * @param name the show name.
+     * @return the key.
+     */
+    private static String indexKey(String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * A show in the list, that is read from its file the first time it is needed.
+     * If it can't be read it isn't tried again, the show stays missing until the list is replaced.
+     */
+    private static final class ShowHandle {
+        private final String name;
+        private volatile SlideShow show;
+        private volatile boolean failed;
+
+        /**
+         * Standard constructor.
+         *
+         * @param name the name of the show.
+         * @param show the show if it is already loaded, or null to load it on first access.
+         */
+        private ShowHandle(String name, SlideShow show) {
+            this.name = name;
+            this.show = show;
+        }
+
+        /**
+         * The show, loaded from disk if this is the first access.
+         *
+         * @return the show or null if it could not be loaded.
+         */
+        private SlideShow get() {
+            SlideShow loaded = show;
+            if (loaded == null && !failed) {
+                synchronized (this) {
+                    loaded = show;
+                    if (loaded == null && !failed) {
+                        loaded = loadShow(name);
+                        show = loaded;
+                        failed = loaded == null;
+                    }
+                }
+            }
+            return loaded;
+        }
     }
 
     /**
@@ -172,21 +651,37 @@ public class PluginImpl extends Plugin {
      * @return the url with the context root included.
      */
     public static String getFromRootUrl(String url) {
-        try {
-            URI u = new URI(url);
-
-            if (u.isAbsolute()) {
-                return url;
-            } else {
-                String rootUrl = getRootUrl();
-                if (rootUrl == null) {
-                    rootUrl = "";
-                }
-                return rootUrl + url;
-            }
-
-        } catch (URISyntaxException e) {
+        if (url == null || isAbsolute(url)) {
+            return url;
+        }
+        String rootUrl = getRootUrl();
+        if (rootUrl == null) {
             return url;
         }
+        return rootUrl + url;
+    }
+
+    /**
+     * Checks if the URL starts with a scheme, the same as {@link java.net.URI#isAbsolute()}
+     * but without parsing the whole URL.
+     *
+     * @param url the URL to check.
+     * @return true if the URL is absolute.
+     */
+    static boolean isAbsolute(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                return i > 0;
+            }
+            boolean schemeChar = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+            if (i > 0) {
+                schemeChar = schemeChar || (c >= '0' && c <= '9') || c == '+' || c == '-' || c == '.';
+            }
+            if (!schemeChar) {
+                return false;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,568 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.Hudson;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Export and import of all slide shows at once, as XML or as newline delimited JSON.
+ * <p/>
+ * Both directions handle one show at a time, so the memory used doesn't depend on how many shows there are.
+ * The export copies each show's file straight to the output.
+ * The import writes each show to a staging file while its pages are checked in parallel,
+ * and only when every show has passed are they all put in place and the list of names saved, once.
+ * If anything fails nothing is changed.
+ * <p/>
+ * In XML each show is written the same way as in its own file, inside a <code>&lt;slideshows&gt;</code> element.
+ * In JSON each line is <code>{"name":"...","xml":"..."}</code> where <code>xml</code> is the show as in its file.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class ShowTransfer {
+
+    /**
+     * The root element of an XML export.
+     */
+    public static final String ROOT_ELEMENT = "slideshows";
+
+    /**
+     * The largest number of shows that are read but not yet checked and staged.
+     * Bounds the memory used by an import.
+     */
+    public static final int MAX_IN_FLIGHT = 64;
+
+    /**
+     * The largest number of errors that is reported for one import.
+     */
+    public static final int MAX_ERRORS = 100;
+
+    private static final Logger logger = Logger.getLogger(ShowTransfer.class.getName());
+
+    private static final String STAGING_PREFIX = ".import-";
+    private static final String XML_DECLARATION = "<?xml";
+    private static final String XML_DECLARATION_END = "?>";
+
+    /**
+     * Utility class.
+     */
+    private ShowTransfer() {
+    }
+
+    /**
+     * Writes all shows, in order, to the output.
+     * Shows are read from their files one at a time, without being loaded.
+     *
+     * @param out    where to write.
+     * @param format the format to write.
+     * @throws IOException if so.
+     */
+    public static void export(Writer out, Format format) throws IOException {
+        if (format == Format.XML) {
+            out.write("<" + ROOT_ELEMENT + ">\n");
+        }
+        for (String name : PluginImpl.getInstance().getShowNames()) {
+            File file = PluginImpl.getShowFile(name).getFile();
+            if (!file.exists()) {
+                logger.warning("There is no file for the slide show " + name + ", it is left out of the export.");
+                continue;
+            }
+            if (format == Format.XML) {
+                copyXml(file, out);
+            } else {
+                JSONObject line = new JSONObject();
+                line.put("name", name);
+                line.put("xml", readXml(file));
+                out.write(line.toString());
+                out.write('\n');
+            }
+        }
+        if (format == Format.XML) {
+            out.write("</" + ROOT_ELEMENT + ">\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Copies a show file to the output, without its XML declaration.
+     *
+     * @param file the file.
+     * @param out  where to write.
+     * @throws IOException if so.
+     */
+    private static void copyXml(File file, Writer out) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), CachedContent.ENCODING));
+        try {
+            String first = reader.readLine();
+            if (first != null && !first.startsWith(XML_DECLARATION)) {
+                out.write(first);
+                out.write('\n');
+            }
+            IOUtils.copy(reader, out);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Reads a show file, without its XML declaration.
+     *
+     * @param file the file.
+     * @return the XML.
+     * @throws IOException if so.
+     */
+    private static String readXml(File file) throws IOException {
+        String xml = FileUtils.readFileToString(file, CachedContent.ENCODING);
+        if (xml.startsWith(XML_DECLARATION)) {
+            xml = xml.substring(xml.indexOf(XML_DECLARATION_END) + XML_DECLARATION_END.length()).trim();
+        }
+        return xml;
+    }
+
+    /**
+     * Reads shows from the input and puts them all in place if every one of them is valid.
+     * Shows with the same name as an existing show replace it.
+     *
+     * @param in      the input.
+     * @param format  the format of the input.
+     * @param replace if the shows that aren't in the input should be removed.
+     * @return what happened.
+     * @throws IOException if the shows could not be staged or put in place.
+     * @see PluginImpl#importShows(java.util.Map, boolean)
+     */
+    public static Result importShows(InputStream in, Format format, boolean replace) throws IOException {
+        File staging = new File(PluginImpl.getShowsDirectory(), STAGING_PREFIX + System.currentTimeMillis());
+        if (!staging.mkdirs()) {
+            throw new IOException("Could not create " + staging);
+        }
+        Result result = new Result();
+        Map<String, File> imported = new LinkedHashMap<String, File>();
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new DaemonThreadFactory());
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        try {
+            read(in, format, staging, imported, pool, inFlight, result);
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            if (result.getErrors().isEmpty()) {
+                result.removed = PluginImpl.getInstance().importShows(imported, replace);
+                result.imported = imported.size();
+                result.applied = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing slide shows.");
+        } finally {
+            pool.shutdownNow();
+            Util.deleteRecursive(staging);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the shows from the source and hands each one to the pool to be checked and staged.
+     * Stops at the first show that can't be read, since the rest of the input can't be trusted.
+     *
+     * @param in       the input.
+     * @param format   the format of the input.
+     * @param staging  the directory to stage the shows in.
+     * @param imported where to put the names of the read shows and their staging files.
+     * @param pool     the pool that checks and stages the shows.
+     * @param inFlight limits how many shows are waiting in the pool.
+     * @param result   where to report errors.
+     * @throws InterruptedException if interrupted while waiting for the pool.
+     */
+    private static void read(InputStream in, Format format, File staging, Map<String, File> imported,
+                             ExecutorService pool, Semaphore inFlight, Result result) throws InterruptedException {
+        Source source;
+        try {
+            source = createSource(in, format);
+        } catch (IOException e) {
+            result.error("Could not read the import: " + e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            result.error("Could not read the import: " + e.getMessage());
+            return;
+        }
+        Set<String> keys = new HashSet<String>();
+        int count = 0;
+        while (true) {
+            SlideShow show;
+            try {
+                show = source.next();
+            } catch (IOException e) {
+                result.error("Could not read show number " + (count + 1) + ": " + e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                result.error("Could not read show number " + (count + 1) + ": " + e.getMessage());
+                return;
+            }
+            if (show == null) {
+                return;
+            }
+            count++;
+            String name = show.getName();
+            if (name == null || name.trim().length() == 0) {
+                result.error("Show number " + count + " has no name.");
+                continue;
+            }
+            if (!keys.add(name.toLowerCase(Locale.ENGLISH))) {
+                result.error("The show " + name + " is in the import more than once.");
+                continue;
+            }
+            File file = new File(staging, count + ".xml");
+            imported.put(name, file);
+            inFlight.acquire();
+            pool.execute(new Stage(show, file, inFlight, result));
+        }
+    }
+
+    /**
+     * Creates the source that reads shows in the given format.
+     *
+     * @param in     the input.
+     * @param format the format.
+     * @return the source.
+     * @throws IOException if so.
+     */
+    private static Source createSource(InputStream in, Format format) throws IOException {
+        Reader reader = new InputStreamReader(in, CachedContent.ENCODING);
+        if (format == Format.XML) {
+            return new XmlSource(Hudson.XSTREAM.createObjectInputStream(reader));
+        } else {
+            return new JsonSource(new BufferedReader(reader));
+        }
+    }
+
+    /**
+     * Casts what was read to a show.
+     *
+     * @param o what was read.
+     * @return the show.
+     * @throws IOException if it isn't a show.
+     */
+    private static SlideShow toShow(Object o) throws IOException {
+        if (!(o instanceof SlideShow)) {
+            String type = "null";
+            if (o != null) {
+                type = o.getClass().getName();
+            }
+            throw new IOException("Not a slide show but " + type);
+        }
+        return (SlideShow)o;
+    }
+
+    /**
+     * Checks the pages of one show and writes it to its staging file.
+     */
+    private static final class Stage implements Runnable {
+        private final SlideShow show;
+        private final File file;
+        private final Semaphore inFlight;
+        private final Result result;
+
+        /**
+         * Standard constructor.
+         *
+         * @param show     the show.
+         * @param file     the staging file.
+         * @param inFlight released when done.
+         * @param result   where to report errors.
+         */
+        private Stage(SlideShow show, File file, Semaphore inFlight, Result result) {
+            this.show = show;
+            this.file = file;
+            this.inFlight = inFlight;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            try {
+                boolean valid = true;
+                for (Page page : show.getPages()) {
+                    FormValidation validation = page.check();
+                    if (validation.kind == FormValidation.Kind.ERROR) {
+                        result.error(show.getName() + " page " + page.getIndex() + ": " + validation.getMessage());
+                        valid = false;
+                    }
+                }
+                if (valid) {
+                    new XmlFile(Hudson.XSTREAM, file).write(show);
+                }
+            } catch (IOException e) {
+                result.error(show.getName() + ": " + e.getMessage());
+            } catch (RuntimeException e) {
+                result.error(show.getName() + ": " + e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * Reads one show after the other.
+     */
+    private static interface Source {
+        /**
+         * The next show.
+         *
+         * @return the show, or null if there are no more.
+         * @throws IOException if the show can't be read.
+         */
+        SlideShow next() throws IOException;
+    }
+
+    /**
+     * Reads shows from an XStream object stream.
+     */
+    private static final class XmlSource implements Source {
+        private final ObjectInputStream in;
+
+        /**
+         * Standard constructor.
+         *
+         * @param in the stream.
+         */
+        private XmlSource(ObjectInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public SlideShow next() throws IOException {
+            try {
+                return toShow(in.readObject());
+            } catch (EOFException e) {
+                return null;
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown type " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads shows from newline delimited JSON.
+     */
+    private static final class JsonSource implements Source {
+        private final BufferedReader in;
+
+        /**
+         * Standard constructor.
+         *
+         * @param in the reader.
+         */
+        private JsonSource(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public SlideShow next() throws IOException {
+            String line = in.readLine();
+            while (line != null && line.trim().length() == 0) {
+                line = in.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            JSONObject json = JSONObject.fromObject(line);
+            return toShow(Hudson.XSTREAM.fromXML(json.getString("xml")));
+        }
+    }
+
+    /**
+     * The formats that shows can be exported and imported in.
+     */
+    public static enum Format {
+        /**
+         * The shows as XML, in one document.
+         */
+        XML("application/xml", "xml"),
+        /**
+         * One JSON object per line.
+         */
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        /**
+         * Standard constructor.
+         *
+         * @param contentType the content type, without charset.
+         * @param extension   the file extension.
+         */
+        private Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * The content type, without charset.
+         *
+         * @return the content type.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * The file extension.
+         *
+         * @return the extension.
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * The format with the given name, case insensitive.
+         * "json" is the same as {@link #NDJSON}.
+         *
+         * @param name the name, or null for {@link #XML}.
+         * @return the format.
+         * @throws IllegalArgumentException if there is no such format.
+         */
+        public static Format fromName(String name) {
+            if (name == null || name.trim().length() == 0) {
+                return XML;
+            }
+            String upper = name.trim().toUpperCase(Locale.ENGLISH);
+            if ("JSON".equals(upper)) {
+                return NDJSON;
+            }
+            return valueOf(upper);
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class Result {
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        private volatile boolean applied;
+        private volatile int imported;
+        private volatile int removed;
+
+        /**
+         * Reports an error, up to {@link #MAX_ERRORS} of them.
+         *
+         * @param message the error.
+         */
+        private void error(String message) {
+            synchronized (errors) {
+                if (errors.size() < MAX_ERRORS) {
+                    errors.add(message);
+                }
+            }
+        }
+
+        /**
+         * If the shows were put in place.
+         *
+         * @return true if so, false if there were errors and nothing was changed.
+         */
+        public boolean isApplied() {
+            return applied;
+        }
+
+        /**
+         * The number of shows that were imported.
+         *
+         * @return the number.
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * The number of shows that were removed because they weren't in the import.
+         *
+         * @return the number.
+         */
+        public int getRemoved() {
+            return removed;
+        }
+
+        /**
+         * What was wrong with the import.
+         *
+         * @return the errors, at most {@link #MAX_ERRORS}.
+         */
+        public List<String> getErrors() {
+            synchronized (errors) {
+                return new ArrayList<String>(errors);
+            }
+        }
+
+        /**
+         * The outcome as JSON: <code>{"applied":true,"imported":n,"removed":n,"errors":[]}</code>.
+         *
+         * @return the JSON.
+         */
+        public JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("applied", applied);
+            json.put("imported", imported);
+            json.put("removed", removed);
+            json.put("errors", JSONArray.fromObject(getErrors()));
+            return json;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shared server side clock that advances every slide show that is played in
+ * {@link SlideShow.Playback#PUSH push} mode.
+ * A show is only advanced while some display has asked for it recently.
+ * Each page is due exactly its display time after the previous one, however late the ticker runs,
+ * so that displays can follow the schedule on their own between the times they check in.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@Extension
+public class SlideShowTicker extends PeriodicWork {
+
+    /**
+     * How often the ticker checks if any show should advance.
+     */
+    private static final long TICK_MS = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * A show that no display has polled for in this long is dropped by the ticker.
+     * Must be longer than {@link SlideShow#PUSH_RESYNC_MS}.
+     */
+    private static final long IDLE_MS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * The shortest time a page is shown, to protect against misconfigured pages with no display time.
+     * The displays use the same minimum when they follow the schedule on their own.
+     */
+    public static final long MIN_PAGE_MS = TimeUnit.SECONDS.toMillis(1);
+
+    private static volatile SlideShowTicker instance;
+
+    private final ConcurrentMap<SlideShow, LiveShow> live = new ConcurrentHashMap<SlideShow, LiveShow>();
+
+    /**
+     * The singleton instance of this ticker.
+     *
+     * @return the ticker.
+     */
+    public static SlideShowTicker getInstance() {
+        SlideShowTicker cached = instance;
+        if (cached == null) {
+            cached = Hudson.getInstance().getExtensionList(PeriodicWork.class).get(SlideShowTicker.class);
+            instance = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return TICK_MS;
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        long now = System.currentTimeMillis();
+        Iterator<LiveShow> iterator = live.values().iterator();
+        while (iterator.hasNext()) {
+            LiveShow show = iterator.next();
+            if (now - show.getLastPolled() > IDLE_MS) {
+                iterator.remove();
+            } else {
+                show.tick(now);
+            }
+        }
+    }
+
+    /**
+     * The currently playing state of the show, starting to play it if it isn't already.
+     *
+     * @param show the show.
+     * @return the live state.
+     */
+    public LiveShow join(SlideShow show) {
+        LiveShow liveShow = live.get(show);
+        if (liveShow == null) {
+            liveShow = new LiveShow(show);
+            LiveShow existing = live.putIfAbsent(show, liveShow);
+            if (existing != null) {
+                liveShow = existing;
+            }
+        }
+        liveShow.setLastPolled(System.currentTimeMillis());
+        return liveShow;
+    }
+
+    /**
+     * Starts the show over from the first page, for example when its pages have been reconfigured.
+     *
+     * @param show the show.
+     */
+    public void restart(SlideShow show) {
+        LiveShow liveShow = live.get(show);
+        if (liveShow != null) {
+            liveShow.restart();
+        }
+    }
+
+    /**
+     * Checks if any display is currently following the show.
+     *
+     * @param show the show.
+     * @return true if so.
+     */
+    public boolean isPlaying(SlideShow show) {
+        return live.containsKey(show);
+    }
+
+    /**
+     * The state of a slide show that is being played by the ticker.
+     */
+    public static final class LiveShow {
+        private final SlideShow show;
+        private int index = -1;
+        private long advanceAt;
+        private volatile long lastPolled;
+
+        /**
+         * Standard constructor.
+         *
+         * @param show the show to play.
+         */
+        private LiveShow(SlideShow show) {
+            this.show = show;
+            advance(System.currentTimeMillis());
+        }
+
+        /**
+         * When a display last asked for this show.
+         *
+         * @return the time in milliseconds.
+         */
+        long getLastPolled() {
+            return lastPolled;
+        }
+
+        /**
+         * When a display last asked for this show.
+         *
+         * @param lastPolled the time in milliseconds.
+         */
+        void setLastPolled(long lastPolled) {
+            this.lastPolled = lastPolled;
+        }
+
+        /**
+         * Advances past every page whose time is up, each starting when the one before it was due.
+         *
+         * @param now the current time.
+         */
+        private synchronized void tick(long now) {
+            while (now >= advanceAt) {
+                advance(advanceAt);
+            }
+        }
+
+        /**
+         * Goes back to the first page.
+         */
+        private synchronized void restart() {
+            index = -1;
+            advance(System.currentTimeMillis());
+        }
+
+        /**
+         * Moves to the next page.
+         *
+         * @param start when the next page starts.
+         */
+        private synchronized void advance(long start) {
+            index = show.getNextIndex(index);
+            long time = MIN_PAGE_MS;
+            Page page = show.getPage(index);
+            if (page != null) {
+                time = Math.max(MIN_PAGE_MS, TimeUnit.SECONDS.toMillis(page.getSpecifiedTime()));
+            }
+            advanceAt = start + time;
+        }
+
+        /**
+         * Gives the page currently shown and how long until the next one, without waiting for anything.
+         *
+         * @return the current page, or null if the show has no pages.
+         */
+        public synchronized Current current() {
+            long now = System.currentTimeMillis();
+            if (index >= 0 && show.getPage(index) == null) {
+                advance(now);
+            } else {
+                tick(now);
+            }
+            if (show.getPage(index) == null) {
+                return null;
+            }
+            return new Current(index, Math.max(0, advanceAt - now));
+        }
+    }
+
+    /**
+     * The page that a live show is currently displaying.
+     */
+    public static final class Current {
+        private final int index;
+        private final long remainingMs;
+
+        /**
+         * Standard constructor.
+         *
+         * @param index       the index of the page.
+         * @param remainingMs the time left until the next page.
+         */
+        private Current(int index, long remainingMs) {
+            this.index = index;
+            this.remainingMs = remainingMs;
+        }
+
+        /**
+         * The index of the page that is currently displayed.
+         * Its data is served from {@link SlideShow#getPageResponse(int)}.
+         *
+         * @return the index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * The number of milliseconds until the show moves to the next page.
+         *
+         * @return the time left.
+         */
+        public long getRemainingMs() {
+            return remainingMs;
+        }
+    }
+}
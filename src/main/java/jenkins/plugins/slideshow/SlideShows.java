@@ -26,18 +26,27 @@ package jenkins.plugins.slideshow;
 
 import hudson.Extension;
 import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Failure;
 import hudson.model.Hudson;
 import hudson.model.RootAction;
 import hudson.security.Permission;
 import hudson.util.FormValidation;
+import jenkins.plugins.slideshow.metrics.SlideShowMetrics;
 import jenkins.plugins.slideshow.model.SlideShow;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import javax.servlet.ServletException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -47,6 +56,7 @@ import java.util.List;
  * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
  */
 @Extension
+@ExportedBean
 public class SlideShows implements RootAction {
 
     /**
@@ -56,6 +66,12 @@ public class SlideShows implements RootAction {
      */
     public static final String URL_NAME = "slideShows";
 
+    /**
+     * The number of shows on each page of the management page.
+     */
+    public static final int PAGE_SIZE = 20;
+
+    private static volatile SlideShows instance;
 
     @Override
     public String getIconFileName() {
@@ -90,6 +106,68 @@ public class SlideShows implements RootAction {
         return PluginImpl.getInstance().getShows();
     }
 
+    /**
+     * One page of the SlideShows whose names contain the filter.
+     * The names are filtered without loading any show, only the shows on the requested page are loaded.
+     *
+     * @param filter what the names should contain, case insensitive, or null for all shows.
+     * @param page   the page number, starting at 0.
+     * @return the listing.
+     */
+    public Listing getListing(String filter, int page) {
+        List<String> matching = new ArrayList<String>();
+        String lower = null;
+        if (filter != null && filter.trim().length() > 0) {
+            lower = filter.trim().toLowerCase();
+        }
+        for (String name : getShowNames()) {
+            if (lower == null || name.toLowerCase().contains(lower)) {
+                matching.add(name);
+            }
+        }
+        int pages = Math.max(1, (matching.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        int current = Math.min(Math.max(0, page), pages - 1);
+        List<SlideShow> shows = new ArrayList<SlideShow>(PAGE_SIZE);
+        int end = Math.min(matching.size(), (current + 1) * PAGE_SIZE);
+        for (int i = current * PAGE_SIZE; i < end; i++) {
+            SlideShow show = getShow(matching.get(i));
+            if (show != null) {
+                shows.add(show);
+            }
+        }
+        return new Listing(shows, filter, current, pages, matching.size());
+    }
+
+    /**
+     * The listing for the current request, from the <code>filter</code> and <code>p</code> parameters.
+     * Used by Jelly.
+     *
+     * @param request the request.
+     * @return the listing.
+     */
+    public Listing getListing(StaplerRequest request) {
+        int page = 0;
+        String p = request.getParameter("p");
+        if (p != null) {
+            try {
+                page = Integer.parseInt(p);
+            } catch (NumberFormatException e) {
+                page = 0;
+            }
+        }
+        return getListing(request.getParameter("filter"), page);
+    }
+
+    /**
+     * The names of all the SlideShows in the system, without loading them.
+     *
+     * @return the list of names.
+     */
+    @Exported(name = "shows")
+    public List<String> getShowNames() {
+        return PluginImpl.getInstance().getShowNames();
+    }
+
     /**
      * Gives the SlideShow with the given name, or null if there is none by that name.
      * Used to navigate the SlideShows with stapler.
@@ -98,27 +176,28 @@ public class SlideShows implements RootAction {
      * @return the SlideShow.
      */
     public SlideShow getShow(String name) {
-        for (SlideShow show : getShows()) {
-            if (name.equalsIgnoreCase(show.getName())) {
-                return show;
-            }
-        }
-        return null;
+        return PluginImpl.getInstance().getShow(name);
     }
 
     /**
      * The singleton instance of this Action.
+     * The instance is looked up among Hudson's actions the first time and cached after that.
      *
      * @return the object.
      */
     public static SlideShows getInstance() {
-        List<Action> actions = Hudson.getInstance().getActions();
-        for (Action a : actions) {
-            if (a instanceof SlideShows) {
-                return (SlideShows)a;
+        SlideShows cached = instance;
+        if (cached == null) {
+            List<Action> actions = Hudson.getInstance().getActions();
+            for (Action a : actions) {
+                if (a instanceof SlideShows) {
+                    cached = (SlideShows)a;
+                    instance = cached;
+                    break;
+                }
             }
         }
-        return null;
+        return cached;
     }
 
     /**
@@ -131,7 +210,7 @@ public class SlideShows implements RootAction {
     public FormValidation doCheckName(@QueryParameter String value) {
         if (value == null || value.isEmpty()) {
             return FormValidation.error("Please specify a name.");
-        } else if (getShow(value) != null) {
+        } else if (PluginImpl.getInstance().hasShow(value)) {
             return FormValidation.error("The name {0} is taken.", value);
         }
         return FormValidation.ok();
@@ -150,6 +229,8 @@ public class SlideShows implements RootAction {
 
     /**
      * Form post method for creating a new SlideShow.
+     * The name is checked the same way as by {@link #doCheckName(String)},
+     * a taken name would otherwise overwrite the other show's file.
      *
      * @param request  the request
      * @param response the response
@@ -162,13 +243,120 @@ public class SlideShows implements RootAction {
 
         JSONObject json = request.getSubmittedForm();
         String name = json.getString("name");
+        FormValidation validation = doCheckName(name);
+        if (validation.kind == FormValidation.Kind.ERROR) {
+            throw new Failure(validation.getMessage());
+        }
         int time = json.getInt("defaultPageTime");
         SlideShow show = new SlideShow(name, time);
-        PluginImpl.getInstance().addShow(show);
+        try {
+            PluginImpl.getInstance().addShow(show);
+        } catch (IllegalArgumentException e) {
+            throw new Failure(e.getMessage());
+        }
+        PluginImpl.getInstance().save(show);
         PluginImpl.getInstance().save();
         response.sendRedirect2("show/" + show.getName() + "/configure");
     }
 
+    /**
+     * Streams all slide shows as an attachment, for {@link #doImport} on this or another Jenkins.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param format   <code>xml</code> (the default) or <code>ndjson</code>.
+     * @throws IOException if so.
+     * @see ShowTransfer#export(java.io.Writer, ShowTransfer.Format)
+     */
+    public void doExport(StaplerRequest request, StaplerResponse response,
+                         @QueryParameter String format) throws IOException {
+        Hudson.getInstance().checkPermission(getConfigurePermission());
+        ShowTransfer.Format f;
+        try {
+            f = ShowTransfer.Format.fromName(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Unknown format " + format);
+            return;
+        }
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Content-Disposition", "attachment; filename=slideshows." + f.getExtension());
+        response.setContentType(f.getContentType() + ";charset=" + CachedContent.ENCODING);
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), CachedContent.ENCODING));
+        ShowTransfer.export(out, f);
+    }
+
+    /**
+     * Imports slide shows from the posted body, as exported by {@link #doExport}.
+     * Either all shows are imported or, if any of them is invalid, none.
+     * Answers with the outcome as JSON, with status 400 if nothing was imported.
+     * Requires {@link Hudson#ADMINISTER} since the body is deserialized as it is.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param format   <code>xml</code> (the default) or <code>ndjson</code>.
+     * @param replace  if the shows that aren't in the body should be removed.
+     * @throws IOException if so.
+     * @see ShowTransfer#importShows(java.io.InputStream, ShowTransfer.Format, boolean)
+     */
+    public void doImport(StaplerRequest request, StaplerResponse response,
+                         @QueryParameter String format, @QueryParameter boolean replace) throws IOException {
+        Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(StaplerResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        ShowTransfer.Format f;
+        try {
+            f = ShowTransfer.Format.fromName(format);
+        } catch (IllegalArgumentException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Unknown format " + format);
+            return;
+        }
+        ShowTransfer.Result result = ShowTransfer.importShows(request.getInputStream(), f, replace);
+        if (!result.isApplied()) {
+            response.setStatus(StaplerResponse.SC_BAD_REQUEST);
+        }
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType("application/json;charset=" + CachedContent.ENCODING);
+        response.getWriter().write(result.toJSON().toString());
+    }
+
+    /**
+     * The remote API, listing the names of the shows.
+     * Each show has its own API under <code>show/NAME/api</code>.
+     *
+     * @return the API.
+     */
+    public Api getApi() {
+        Hudson.getInstance().checkPermission(getListPermission());
+        return new Api(this);
+    }
+
+    /**
+     * The displays that are currently playing slide shows.
+     *
+     * @return the displays.
+     */
+    public List<Displays.Display> getDisplays() {
+        return Displays.getInstance().getDisplays();
+    }
+
+    /**
+     * Serves the plugin's counters and latency histograms as JSON.
+     * Times are in microseconds.
+     *
+     * @param request  the request
+     * @param response the response
+     * @throws IOException if so.
+     * @see SlideShowMetrics
+     */
+    public void doMetrics(StaplerRequest request, StaplerResponse response) throws IOException {
+        Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write(SlideShowMetrics.getInstance().toJSON().toString());
+    }
+
     /**
      * Convenience method for easier Jelly access to the constant {@link SlideShow#DEFAULT_PAGE_TIME}.
      *
@@ -226,4 +414,98 @@ public class SlideShows implements RootAction {
     public Permission getDeletePermission() {
         return PluginImpl.DELETE;
     }
+
+    /**
+     * One page of SlideShows on the management page.
+     */
+    public static final class Listing {
+        private final List<SlideShow> shows;
+        private final String filter;
+        private final int page;
+        private final int pages;
+        private final int total;
+
+        /**
+         * Standard constructor.
+         *
+         * @param shows  the shows on the page.
+         * @param filter the filter, or null.
+         * @param page   the page number, starting at 0.
+         * @param pages  the number of pages.
+         * @param total  the number of shows matching the filter.
+         */
+        private Listing(List<SlideShow> shows, String filter, int page, int pages, int total) {
+            this.shows = shows;
+            this.filter = filter;
+            this.page = page;
+            this.pages = pages;
+            this.total = total;
+        }
+
+        /**
+         * The shows on the page.
+         *
+         * @return the shows.
+         */
+        public List<SlideShow> getShows() {
+            return shows;
+        }
+
+        /**
+         * The filter.
+         *
+         * @return the filter, or an empty string if there is none.
+         */
+        public String getFilter() {
+            if (filter == null) {
+                return "";
+            }
+            return filter;
+        }
+
+        /**
+         * The page number, starting at 0.
+         *
+         * @return the page.
+         */
+        public int getPage() {
+            return page;
+        }
+
+        /**
+         * The number of pages.
+         *
+         * @return the count.
+         */
+        public int getPages() {
+            return pages;
+        }
+
+        /**
+         * The number of shows matching the filter.
+         *
+         * @return the count.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * If there is a page before this one.
+         *
+         * @return true if so.
+         */
+        public boolean isHasPrevious() {
+            return page > 0;
+        }
+
+        /**
+         * If there is a page after this one.
+         *
+         * @return true if so.
+         */
+        public boolean isHasNext() {
+            return page < pages - 1;
+        }
+    }
 }
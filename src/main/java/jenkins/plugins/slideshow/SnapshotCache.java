@@ -0,0 +1,364 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A cache of expensive to produce content, for example rendered or fetched pages,
+ * shared by all displays.
+ * Concurrent misses for the same key are coalesced into one load,
+ * and stale entries that are still in use are reloaded by {@link #refresh(long)} from a background worker.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class SnapshotCache {
+
+    private static final Logger logger = Logger.getLogger(SnapshotCache.class.getName());
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final boolean refreshed;
+
+    /**
+     * Creates a cache whose stale entries are reloaded by {@link #refresh(long, Activity)}.
+     */
+    public SnapshotCache() {
+        this(true);
+    }
+
+    /**
+     * Standard constructor.
+     *
+     * @param refreshed if stale entries are reloaded in the background. If not, the entries don't keep
+     *                  their loaders, which may hold on to the request they were created for,
+     *                  and are only ever loaded by {@link #get(String, Loader, long, String)}.
+     */
+    public SnapshotCache(boolean refreshed) {
+        this.refreshed = refreshed;
+    }
+
+    /**
+     * Loads the content for a key.
+     */
+    public interface Loader {
+        /**
+         * Produces a fresh snapshot.
+         *
+         * @param previous the snapshot that is about to be replaced, or null if there is none.
+         * @return the new snapshot.
+         * @throws IOException if the content could not be produced.
+         */
+        Snapshot load(Snapshot previous) throws IOException;
+    }
+
+    /**
+     * Tells the background worker if anyone is watching the owners of an entry.
+     */
+    public interface Activity {
+        /**
+         * If the owner is being watched.
+         *
+         * @param owner the owner.
+         * @return true if so.
+         */
+        boolean isActive(String owner);
+    }
+
+    /**
+     * Gives the snapshot for the key.
+     * A fresh snapshot is returned directly. A snapshot that is stale by no more than <code>maxStaleMs</code>
+     * is also returned directly and left for the background worker to reload.
+     * Otherwise the snapshot is loaded with the given loader, and callers asking for the same key
+     * at the same time share that load. The key must therefore cover everything the loader depends on.
+     *
+     * @param key        the key.
+     * @param loader     how to load the content if needed.
+     * @param maxStaleMs how long past its freshness a snapshot may still be served.
+     * @return the snapshot.
+     * @throws IOException if the content had to be loaded and that failed.
+     */
+    public Snapshot get(String key, Loader loader, long maxStaleMs) throws IOException {
+        return get(key, loader, maxStaleMs, null);
+    }
+
+    /**
+     * Gives the snapshot for the key, the same as {@link #get(String, Loader, long)},
+     * and records the owner of the entry so that background reloads can be suspended
+     * while none of its owners are watched.
+     *
+     * @param key        the key.
+     * @param loader     how to load the content if needed.
+     * @param maxStaleMs how long past its freshness a snapshot may still be served.
+     * @param owner      who asked for the snapshot, or null.
+     * @return the snapshot.
+     * @throws IOException if the content had to be loaded and that failed.
+     * @see #refresh(long, Activity)
+     */
+    public Snapshot get(String key, Loader loader, long maxStaleMs, String owner) throws IOException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Loader kept = null;
+            if (refreshed) {
+                kept = loader;
+            }
+            entry = new Entry(kept);
+            Entry existing = entries.putIfAbsent(key, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        long now = System.currentTimeMillis();
+        entry.lastAccess = now;
+        if (owner != null && !entry.owners.contains(owner)) {
+            entry.owners.add(owner);
+        }
+        Snapshot snapshot = entry.snapshot;
+        if (snapshot != null && now <= snapshot.getFreshUntil() + maxStaleMs) {
+            return snapshot;
+        }
+        return entry.load(loader);
+    }
+
+    /**
+     * Reloads every stale entry that has been asked for within <code>idleMs</code>
+     * and drops the entries that haven't.
+     * Meant to be called periodically from a background worker.
+     *
+     * @param idleMs how long an entry may go unused before it is dropped.
+     */
+    public void refresh(long idleMs) {
+        refresh(idleMs, null);
+    }
+
+    /**
+     * Reloads every stale entry that has been asked for within <code>idleMs</code>
+     * and drops the entries that haven't.
+     * Entries that have owners but none of them are active are kept as they are and not reloaded,
+     * the next request for them reloads them if they are stale by then.
+     *
+     * @param idleMs   how long an entry may go unused before it is dropped.
+     * @param activity who is active, or null to reload regardless.
+     */
+    public void refresh(long idleMs, Activity activity) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.lastAccess > idleMs) {
+                iterator.remove();
+            } else if (entry.loader != null && (activity == null || entry.isActive(activity))) {
+                Snapshot snapshot = entry.snapshot;
+                if (snapshot == null || now > snapshot.getFreshUntil()) {
+                    try {
+                        entry.load(entry.loader);
+                    } catch (IOException e) {
+                        logger.log(Level.WARNING, "Failed to refresh a snapshot", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the entries that haven't been asked for within <code>idleMs</code>, without reloading any.
+     * For caches whose content can only be loaded while serving a request.
+     *
+     * @param idleMs how long an entry may go unused before it is dropped.
+     */
+    public void expire(long idleMs) {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastAccess > idleMs) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops the entry for the key.
+     *
+     * @param key the key.
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * The number of entries in the cache.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * A cache entry.
+     */
+    private static final class Entry {
+        private final Loader loader;
+        private final AtomicReference<FutureTask<Snapshot>> pending = new AtomicReference<FutureTask<Snapshot>>();
+        private volatile Snapshot snapshot;
+        private volatile long lastAccess;
+        private final Set<String> owners = new CopyOnWriteArraySet<String>();
+
+        /**
+         * Standard constructor.
+         *
+         * @param loader the loader of the content used by background reloads, or null if there are none.
+         */
+        private Entry(Loader loader) {
+            this.loader = loader;
+        }
+
+        /**
+         * If the entry has no owners or one of them is active.
+         *
+         * @param activity who is active.
+         * @return true if the entry should be kept fresh.
+         */
+        private boolean isActive(Activity activity) {
+            if (owners.isEmpty()) {
+                return true;
+            }
+            for (String owner : owners) {
+                if (activity.isActive(owner)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Loads the content, or waits for the load that is already in progress.
+         *
+         * @param with the loader to use if no load is in progress.
+         * @return the loaded snapshot.
+         * @throws IOException if the load failed.
+         */
+        private Snapshot load(final Loader with) throws IOException {
+            FutureTask<Snapshot> task = new FutureTask<Snapshot>(new Callable<Snapshot>() {
+                @Override
+                public Snapshot call() throws Exception {
+                    Snapshot loaded = with.load(snapshot);
+                    snapshot = loaded;
+                    return loaded;
+                }
+            });
+            FutureTask<Snapshot> running = task;
+            if (pending.compareAndSet(null, task)) {
+                try {
+                    task.run();
+                } finally {
+                    pending.set(null);
+                }
+            } else {
+                running = pending.get();
+                if (running == null) {
+                    Snapshot loaded = snapshot;
+                    if (loaded != null) {
+                        return loaded;
+                    }
+                    return load(with);
+                }
+            }
+            try {
+                return running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a snapshot");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException)cause;
+                }
+                IOException io = new IOException("Failed to load a snapshot");
+                io.initCause(cause);
+                throw io;
+            }
+        }
+    }
+
+    /**
+     * A piece of loaded content and how long it is fresh.
+     */
+    public static final class Snapshot {
+        private final CachedContent content;
+        private final long freshUntil;
+        private final String validator;
+
+        /**
+         * Standard constructor.
+         *
+         * @param content    the content.
+         * @param freshUntil the time (in milliseconds) until which the content is fresh.
+         * @param validator  something the loader can use to revalidate the content, for example an ETag, or null.
+         */
+        public Snapshot(CachedContent content, long freshUntil, String validator) {
+            this.content = content;
+            this.freshUntil = freshUntil;
+            this.validator = validator;
+        }
+
+        /**
+         * The content.
+         *
+         * @return the content.
+         */
+        public CachedContent getContent() {
+            return content;
+        }
+
+        /**
+         * The time (in milliseconds) until which the content is fresh.
+         *
+         * @return the time.
+         */
+        public long getFreshUntil() {
+            return freshUntil;
+        }
+
+        /**
+         * Something the loader can use to revalidate the content, for example an ETag, or null.
+         *
+         * @return the validator.
+         */
+        public String getValidator() {
+            return validator;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Util;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TopLevelItem;
+import hudson.model.View;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the placeholders of {@link HtmlTemplate}s and caches the html escaped values for {@link #TTL} seconds,
+ * shared between all pages and displays of the same user.
+ * Values are resolved as the user asking for the page, so jobs that the user can't read are left out
+ * and only a fixed set of status properties can be asked for.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class TemplateValues {
+
+    /**
+     * How long (in seconds) a resolved value is reused.
+     */
+    public static final int TTL = Integer.getInteger(TemplateValues.class.getName() + ".ttl", 10);
+
+    /**
+     * When the cache grows past this many values the expired ones are dropped.
+     */
+    private static final int PRUNE_SIZE = 1000;
+
+    private static final ConcurrentMap<String, Value> VALUES = new ConcurrentHashMap<String, Value>();
+
+    /**
+     * Utility class.
+     */
+    private TemplateValues() {
+    }
+
+    /**
+     * Gives the html escaped value of a placeholder, resolving it if there is no fresh value cached.
+     *
+     * @param key      the whole placeholder expression.
+     * @param kind     what kind of object the placeholder is about.
+     * @param target   the name of the object.
+     * @param property the property.
+     * @return the value, empty if the object can't be found.
+     */
+    public static String get(String key, Kind kind, String target, String property) {
+        long now = System.currentTimeMillis();
+        String userKey = Hudson.getAuthentication().getName() + "\n" + key;
+        Value value = VALUES.get(userKey);
+        if (value != null && now < value.expires) {
+            return value.text;
+        }
+        String text = kind.resolve(target, property);
+        if (text == null) {
+            text = "";
+        }
+        text = Util.escape(text);
+        if (VALUES.size() >= PRUNE_SIZE) {
+            prune(now);
+        }
+        VALUES.put(userKey, new Value(text, now + TimeUnit.SECONDS.toMillis(TTL)));
+        return text;
+    }
+
+    /**
+     * Drops all expired values.
+     *
+     * @param now the current time.
+     */
+    private static void prune(long now) {
+        Iterator<Value> iterator = VALUES.values().iterator();
+        while (iterator.hasNext()) {
+            if (now >= iterator.next().expires) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * A resolved value.
+     */
+    private static final class Value {
+        private final String text;
+        private final long expires;
+
+        /**
+         * Standard constructor.
+         *
+         * @param text    the escaped value.
+         * @param expires when the value expires.
+         */
+        private Value(String text, long expires) {
+            this.text = text;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * The kinds of objects that placeholders can be about.
+     */
+    public static enum Kind {
+        /**
+         * A job by full name, for example <code>${job:foo/lastBuild.result}</code>.
+         */
+        JOB("job", "name", "displayName", "fullName", "url", "color", "health", "building") {
+            @Override
+            public boolean supports(String property) {
+                int dot = property.indexOf('.');
+                if (dot > 0) {
+                    return BUILDS.contains(property.substring(0, dot))
+                            && BUILD_PROPERTIES.contains(property.substring(dot + 1));
+                }
+                return super.supports(property);
+            }
+
+            @Override
+            String resolve(String target, String property) {
+                Job job = Hudson.getInstance().getItemByFullName(target, Job.class);
+                if (job == null || !job.hasPermission(Item.READ)) {
+                    return null;
+                }
+                int dot = property.indexOf('.');
+                if (dot > 0) {
+                    return build(build(job, property.substring(0, dot)), property.substring(dot + 1));
+                }
+                if ("name".equals(property)) {
+                    return job.getName();
+                } else if ("displayName".equals(property)) {
+                    return job.getDisplayName();
+                } else if ("fullName".equals(property)) {
+                    return job.getFullName();
+                } else if ("url".equals(property)) {
+                    return job.getUrl();
+                } else if ("color".equals(property)) {
+                    return job.getIconColor().name().toLowerCase();
+                } else if ("health".equals(property)) {
+                    return String.valueOf(job.getBuildHealth().getScore());
+                } else {
+                    return String.valueOf(job.isBuilding());
+                }
+            }
+        },
+        /**
+         * A view by URL or name, for example <code>${view:All/failing}</code>.
+         */
+        VIEW("view", "name", "url", "jobs", "failing", "unstable", "successful", "building") {
+            @Override
+            String resolve(String target, String property) {
+                View view = findView(target);
+                if (view == null) {
+                    return null;
+                }
+                if ("name".equals(property)) {
+                    return view.getDisplayName();
+                } else if ("url".equals(property)) {
+                    return view.getViewUrl();
+                }
+                int count = 0;
+                for (TopLevelItem item : view.getItems()) {
+                    if (item instanceof Job && item.hasPermission(Item.READ) && matches((Job)item, property)) {
+                        count++;
+                    }
+                }
+                return String.valueOf(count);
+            }
+        };
+
+        private static final Set<String> BUILDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+                "lastBuild", "lastCompletedBuild", "lastSuccessfulBuild", "lastFailedBuild", "lastStableBuild")));
+        private static final Set<String> BUILD_PROPERTIES = Collections.unmodifiableSet(new HashSet<String>(
+                Arrays.asList("number", "result", "displayName", "url", "timestamp", "duration", "building")));
+
+        private final String prefix;
+        private final Set<String> properties;
+
+        /**
+         * Standard constructor.
+         *
+         * @param prefix     the prefix of the placeholder.
+         * @param properties the supported properties.
+         */
+        private Kind(String prefix, String... properties) {
+            this.prefix = prefix;
+            this.properties = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(properties)));
+        }
+
+        /**
+         * Finds the kind with the given placeholder prefix.
+         *
+         * @param prefix the prefix.
+         * @return the kind, or null if there is none.
+         */
+        public static Kind forPrefix(String prefix) {
+            for (Kind kind : values()) {
+                if (kind.prefix.equals(prefix)) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * If the property can be asked for.
+         *
+         * @param property the property.
+         * @return true if so.
+         */
+        public boolean supports(String property) {
+            return properties.contains(property);
+        }
+
+        /**
+         * Resolves the property of the named object, as the current user.
+         *
+         * @param target   the name of the object.
+         * @param property the property, one that is {@link #supports(String) supported}.
+         * @return the value, or null if there is no such object.
+         */
+        abstract String resolve(String target, String property);
+
+        /**
+         * Finds a view by URL, or by name among the top level views.
+         *
+         * @param target the URL or name.
+         * @return the view, or null if there is none.
+         */
+        private static View findView(String target) {
+            View view = ViewIndex.get(target);
+            if (view == null) {
+                view = ViewIndex.get(target + "/");
+            }
+            if (view == null) {
+                view = Hudson.getInstance().getView(target);
+            }
+            return view;
+        }
+
+        /**
+         * If the job counts for the property of a view.
+         *
+         * @param job      the job.
+         * @param property the property.
+         * @return true if so.
+         */
+        private static boolean matches(Job job, String property) {
+            if ("jobs".equals(property)) {
+                return true;
+            } else if ("building".equals(property)) {
+                return job.isBuilding();
+            }
+            Run last = job.getLastCompletedBuild();
+            if (last == null) {
+                return false;
+            }
+            Result result = last.getResult();
+            if ("failing".equals(property)) {
+                return result == Result.FAILURE;
+            } else if ("unstable".equals(property)) {
+                return result == Result.UNSTABLE;
+            } else {
+                return result == Result.SUCCESS;
+            }
+        }
+
+        /**
+         * Finds one of the job's well known builds.
+         *
+         * @param job  the job.
+         * @param name the name of the build, for example lastBuild.
+         * @return the build or null if there is none.
+         */
+        private static Run build(Job job, String name) {
+            if ("lastBuild".equals(name)) {
+                return job.getLastBuild();
+            } else if ("lastCompletedBuild".equals(name)) {
+                return job.getLastCompletedBuild();
+            } else if ("lastSuccessfulBuild".equals(name)) {
+                return job.getLastSuccessfulBuild();
+            } else if ("lastFailedBuild".equals(name)) {
+                return job.getLastFailedBuild();
+            } else {
+                return job.getLastStableBuild();
+            }
+        }
+
+        /**
+         * Resolves a property of a build.
+         *
+         * @param run      the build, may be null.
+         * @param property the property.
+         * @return the value, empty if there is no build.
+         */
+        private static String build(Run run, String property) {
+            if (run == null) {
+                return "";
+            }
+            if ("number".equals(property)) {
+                return String.valueOf(run.getNumber());
+            } else if ("result".equals(property)) {
+                Result result = run.getResult();
+                if (result == null) {
+                    return "";
+                }
+                return result.toString();
+            } else if ("displayName".equals(property)) {
+                return run.getDisplayName();
+            } else if ("url".equals(property)) {
+                return run.getUrl();
+            } else if ("timestamp".equals(property)) {
+                return run.getTimestampString();
+            } else if ("duration".equals(property)) {
+                return run.getDurationString();
+            } else {
+                return String.valueOf(run.isBuilding());
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import hudson.model.TaskListener;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A caching reverse proxy for {@link jenkins.plugins.slideshow.model.UrlPage}s in proxied mode.
+ * Each target is fetched once on the server and the response is cached according to its HTTP cache headers,
+ * so that any number of displays cost one fetch against the target per freshness period.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@Extension
+public class UrlProxy extends AsyncPeriodicWork {
+
+    /**
+     * How long (in seconds) a response without any cache headers is considered fresh.
+     */
+    public static final int DEFAULT_FRESHNESS = Integer.getInteger(UrlProxy.class.getName() + ".defaultFreshness", 30);
+
+    /**
+     * The largest response (in bytes) that is proxied, larger responses fail.
+     */
+    public static final int MAX_SIZE = Integer.getInteger(UrlProxy.class.getName() + ".maxSize", 4 * 1024 * 1024);
+
+    /**
+     * The Content-Security-Policy that proxied responses are served with.
+     * The sandbox gives the response its own unique origin, so that scripts in it can't reach Jenkins.
+     */
+    public static final String CONTENT_SECURITY_POLICY = "sandbox allow-scripts allow-forms allow-popups";
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:s-maxage|max-age)\\s*=\\s*\"?(\\d+)");
+    private static final String ETAG_PREFIX = "E:";
+    private static final String LAST_MODIFIED_PREFIX = "L:";
+    private static final long RECURRENCE_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long IDLE_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 60000;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static volatile UrlProxy instance;
+
+    private final SnapshotCache cache = new SnapshotCache();
+
+    /**
+     * Default constructor.
+     */
+    public UrlProxy() {
+        super("Slide show URL proxy");
+    }
+
+    /**
+     * The singleton instance.
+     *
+     * @return the instance.
+     */
+    public static UrlProxy getInstance() {
+        UrlProxy cached = instance;
+        if (cached == null) {
+            cached = Hudson.getInstance().getExtensionList(PeriodicWork.class).get(UrlProxy.class);
+            instance = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_MS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        cache.refresh(IDLE_MS, Displays.getInstance());
+    }
+
+    /**
+     * Gives the cached response for the URL, fetching it if there is no usable copy.
+     *
+     * @param url        the absolute URL to fetch.
+     * @param maxStaleMs how long past its freshness a cached response may still be served.
+     * @return the response.
+     * @throws IOException if the response had to be fetched and that failed.
+     */
+    public CachedContent get(String url, long maxStaleMs) throws IOException {
+        return get(url, maxStaleMs, null);
+    }
+
+    /**
+     * Gives the cached response for the URL, fetching it if there is no usable copy.
+     * The response is only refreshed in the background while the show is being watched.
+     *
+     * @param url        the absolute URL to fetch.
+     * @param maxStaleMs how long past its freshness a cached response may still be served.
+     * @param show       the name of the show that wants the response, or null.
+     * @return the response.
+     * @throws IOException if the response had to be fetched and that failed.
+     * @see Displays#isWatched(String)
+     */
+    public CachedContent get(final String url, long maxStaleMs, String show) throws IOException {
+        SnapshotCache.Loader loader = new SnapshotCache.Loader() {
+            @Override
+            public SnapshotCache.Snapshot load(SnapshotCache.Snapshot previous) throws IOException {
+                return fetch(url, previous);
+            }
+        };
+        return cache.get(url, loader, maxStaleMs, show).getContent();
+    }
+
+    /**
+     * Checks that the URL may be fetched by the server: it has to be an absolute http or https URL.
+     * Anything else, for example <code>file:</code> URLs, would let the server read what it shouldn't.
+     *
+     * @param url the URL.
+     * @return true if so.
+     */
+    public static boolean isAllowed(String url) {
+        if (url == null) {
+            return false;
+        }
+        String lower = url.trim().toLowerCase(Locale.ENGLISH);
+        return lower.startsWith("http://") || lower.startsWith("https://");
+    }
+
+    /**
+     * Reads the whole stream, but no more than the given number of bytes.
+     *
+     * @param in  the stream.
+     * @param max the largest number of bytes to read.
+     * @return the bytes.
+     * @throws IOException if the stream has more than that or can't be read.
+     */
+    static byte[] read(InputStream in, int max) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int total = 0;
+        int n = in.read(buffer);
+        while (n >= 0) {
+            total += n;
+            if (total > max) {
+                throw new IOException("The response is larger than " + max + " bytes.");
+            }
+            out.write(buffer, 0, n);
+            n = in.read(buffer);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Fetches the URL, revalidating the previous response if there is one.
+     *
+     * @param url      the URL.
+     * @param previous the previous response or null.
+     * @return the new response.
+     * @throws IOException if so.
+     */
+    private SnapshotCache.Snapshot fetch(String url, SnapshotCache.Snapshot previous) throws IOException {
+        if (!isAllowed(url)) {
+            throw new IOException("Only http and https URLs can be proxied: " + url);
+        }
+        URLConnection connection = ProxyConfiguration.open(new URL(url));
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        if (previous != null && previous.getValidator() != null) {
+            String validator = previous.getValidator();
+            if (validator.startsWith(ETAG_PREFIX)) {
+                connection.setRequestProperty("If-None-Match", validator.substring(ETAG_PREFIX.length()));
+            } else {
+                connection.setRequestProperty("If-Modified-Since", validator.substring(LAST_MODIFIED_PREFIX.length()));
+            }
+        }
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection http = (HttpURLConnection)connection;
+            http.setInstanceFollowRedirects(false);
+            int code = http.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null) {
+                return new SnapshotCache.Snapshot(previous.getContent(), freshUntil(connection),
+                        previous.getValidator());
+            } else if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Fetching " + url + " gave " + code);
+            }
+        }
+        if (connection.getContentLength() > MAX_SIZE) {
+            throw new IOException("Fetching " + url + " gave more than " + MAX_SIZE + " bytes.");
+        }
+        InputStream in = connection.getInputStream();
+        byte[] body;
+        try {
+            body = read(in, MAX_SIZE);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        String contentType = connection.getContentType();
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        } else if (contentType.startsWith("text/html")) {
+            body = withBase(body, url);
+        }
+        return new SnapshotCache.Snapshot(new CachedContent(contentType, body), freshUntil(connection),
+                validator(connection));
+    }
+
+    /**
+     * Calculates how long a response is fresh from its Cache-Control and Expires headers.
+     *
+     * @param connection the connection.
+     * @return the time until which the response is fresh.
+     */
+    private static long freshUntil(URLConnection connection) {
+        long now = System.currentTimeMillis();
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            String lower = cacheControl.toLowerCase();
+            if (lower.contains("no-store") || lower.contains("no-cache")) {
+                return now;
+            }
+            Matcher matcher = MAX_AGE.matcher(lower);
+            if (matcher.find()) {
+                return now + TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+            }
+        }
+        long expires = connection.getExpiration();
+        if (expires > 0) {
+            long date = connection.getDate();
+            if (date > 0) {
+                return now + Math.max(0, expires - date);
+            }
+            return expires;
+        }
+        return now + TimeUnit.SECONDS.toMillis(DEFAULT_FRESHNESS);
+    }
+
+    /**
+     * The validator to use when revalidating the response.
+     *
+     * @param connection the connection.
+     * @return the validator or null if the response has none.
+     */
+    private static String validator(URLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        if (etag != null) {
+            return ETAG_PREFIX + etag;
+        }
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (lastModified != null) {
+            return LAST_MODIFIED_PREFIX + lastModified;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a base tag to an html document so that relative links keep pointing to the target.
+     * Works on the raw bytes so that the document's encoding is kept, assuming it is ASCII compatible.
+     *
+     * @param html the document.
+     * @param url  the URL it was fetched from.
+     * @return the document with a base tag.
+     */
+    static byte[] withBase(byte[] html, String url) {
+        String ascii;
+        try {
+            ascii = new String(html, "ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            return html;
+        }
+        String based = ViewSnapshots.withBase(ascii, url);
+        if (based.length() == ascii.length()) {
+            return html;
+        }
+        try {
+            return based.getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            return html;
+        }
+    }
+}
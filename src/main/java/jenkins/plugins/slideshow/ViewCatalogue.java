@@ -0,0 +1,255 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import jenkins.plugins.slideshow.model.ViewPage.ViewPojo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, sorted catalogue of views that can be searched by prefix.
+ * A changed catalogue is made from the previous one by merging in what was added and leaving out what was removed,
+ * so the whole set of views is never sorted again.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class ViewCatalogue {
+
+    /**
+     * The catalogue without any views.
+     */
+    public static final ViewCatalogue EMPTY = new ViewCatalogue(new ViewPojo[0], new Entry[0]);
+
+    private static final Comparator<Entry> BY_KEY = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            int c = o1.key.compareTo(o2.key);
+            if (c == 0) {
+                c = o1.view.compareTo(o2.view);
+            }
+            return c;
+        }
+    };
+
+    private final ViewPojo[] views;
+    private final Entry[] entries;
+
+    /**
+     * Standard constructor.
+     *
+     * @param views   the views sorted by full name.
+     * @param entries the search entries sorted by key.
+     */
+    private ViewCatalogue(ViewPojo[] views, Entry[] entries) {
+        this.views = views;
+        this.entries = entries;
+    }
+
+    /**
+     * All views sorted by full name.
+     *
+     * @return the views.
+     */
+    public List<ViewPojo> getViews() {
+        return Collections.unmodifiableList(Arrays.asList(views));
+    }
+
+    /**
+     * The number of views.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return views.length;
+    }
+
+    /**
+     * Finds the views whose name or URL starts with the prefix, ignoring case.
+     *
+     * @param prefix the prefix.
+     * @param max    the largest number of views to return.
+     * @return the matching views, in key order.
+     */
+    public List<ViewPojo> search(String prefix, int max) {
+        String key = toKey(prefix);
+        Map<String, ViewPojo> found = new LinkedHashMap<String, ViewPojo>();
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid].key.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < entries.length && found.size() < max; i++) {
+            if (!entries[i].key.startsWith(key)) {
+                break;
+            }
+            ViewPojo view = entries[i].view;
+            if (!found.containsKey(view.getViewUrl())) {
+                found.put(view.getViewUrl(), view);
+            }
+        }
+        return new ArrayList<ViewPojo>(found.values());
+    }
+
+    /**
+     * Makes a new catalogue with the changes applied.
+     *
+     * @param removed the URLs of the views that are gone or have changed.
+     * @param added   the views that are new or have changed, with the name of each.
+     * @return the new catalogue, or this one if there are no changes.
+     */
+    public ViewCatalogue with(Set<String> removed, Map<ViewPojo, String> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        Set<String> replaced = new HashSet<String>(removed);
+        List<ViewPojo> newViews = new ArrayList<ViewPojo>(added.keySet());
+        List<Entry> newEntries = new ArrayList<Entry>(added.size() * 2);
+        for (Map.Entry<ViewPojo, String> e : added.entrySet()) {
+            replaced.add(e.getKey().getViewUrl());
+            newEntries.add(new Entry(toKey(e.getValue()), e.getKey()));
+            newEntries.add(new Entry(toKey(e.getKey().getViewUrl()), e.getKey()));
+        }
+        Collections.sort(newViews);
+        Collections.sort(newEntries, BY_KEY);
+        ViewPojo[] mergedViews = merge(views, newViews, replaced, null, new ViewPojo[0]);
+        Entry[] mergedEntries = merge(entries, newEntries, replaced, BY_KEY, new Entry[0]);
+        return new ViewCatalogue(mergedViews, mergedEntries);
+    }
+
+    /**
+     * Merges the sorted old items, except the replaced ones, with the sorted new items.
+     *
+     * @param old        the old items.
+     * @param fresh      the new items.
+     * @param replaced   the URLs of the views whose old items should be left out.
+     * @param comparator the order, or null for the natural order.
+     * @param type       an empty array of the item type.
+     * @param <T>        the item type.
+     * @return the merged items.
+     */
+    private static <T> T[] merge(T[] old, List<T> fresh, Set<String> replaced,
+                                 Comparator<? super T> comparator, T[] type) {
+        List<T> merged = new ArrayList<T>(old.length + fresh.size());
+        int j = 0;
+        for (T item : old) {
+            if (replaced.contains(urlOf(item))) {
+                continue;
+            }
+            while (j < fresh.size() && compare(fresh.get(j), item, comparator) < 0) {
+                merged.add(fresh.get(j++));
+            }
+            merged.add(item);
+        }
+        while (j < fresh.size()) {
+            merged.add(fresh.get(j++));
+        }
+        return merged.toArray(type);
+    }
+
+    /**
+     * Compares two items in the given order.
+     *
+     * @param a          the first item.
+     * @param b          the second item.
+     * @param comparator the order, or null for the natural order.
+     * @param <T>        the item type.
+     * @return the comparison.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(T a, T b, Comparator<? super T> comparator) {
+        if (comparator == null) {
+            return ((Comparable<T>)a).compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+
+    /**
+     * The URL of the view an item is about.
+     *
+     * @param item a view or an entry.
+     * @return the URL.
+     */
+    private static String urlOf(Object item) {
+        if (item instanceof Entry) {
+            return ((Entry)item).view.getViewUrl();
+        }
+        return ((ViewPojo)item).getViewUrl();
+    }
+
+    /**
+     * Makes a catalogue of the views.
+     *
+     * @param views the views, with the name of each.
+     * @return the catalogue.
+     */
+    public static ViewCatalogue of(Map<ViewPojo, String> views) {
+        return EMPTY.with(Collections.<String>emptySet(), views);
+    }
+
+    /**
+     * The search key of a name or URL.
+     *
+     * @param text the name or URL.
+     * @return the key.
+     */
+    private static String toKey(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase();
+    }
+
+    /**
+     * A search key pointing to a view.
+     */
+    private static final class Entry {
+        private final String key;
+        private final ViewPojo view;
+
+        /**
+         * Standard constructor.
+         *
+         * @param key  the lower case key.
+         * @param view the view.
+         */
+        private Entry(String key, ViewPojo view) {
+            this.key = key;
+            this.view = view;
+        }
+    }
+}
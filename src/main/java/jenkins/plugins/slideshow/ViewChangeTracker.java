@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.TopLevelItem;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a cheap "last changed" version per view, bumped whenever a build of one of the view's jobs starts or
+ * completes, or when jobs are created, renamed or deleted.
+ * Displays use it to tell if a page they have already loaded can be shown again as is.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class ViewChangeTracker {
+
+    /**
+     * Versions are taken from one sequence that starts at the time of startup,
+     * so that a version from before a restart is never mistaken for a current one.
+     */
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis());
+
+    private static final ConcurrentMap<String, Long> VERSIONS = new ConcurrentHashMap<String, Long>();
+
+    private static final Long INITIAL = SEQUENCE.get();
+
+    /**
+     * Utility class.
+     */
+    private ViewChangeTracker() {
+    }
+
+    /**
+     * The current version of the view with the given URL.
+     *
+     * @param viewUrl the relative URL of the view.
+     * @return the version.
+     */
+    public static long getVersion(String viewUrl) {
+        Long version = VERSIONS.get(viewUrl);
+        if (version == null) {
+            return INITIAL;
+        }
+        return version;
+    }
+
+    /**
+     * Marks every view containing the item, or any of the items it is nested in, as changed.
+     * Only the views of the groups along the way are asked, found through the {@link ViewIndex}.
+     *
+     * @param item the item that changed.
+     */
+    public static void changed(Item item) {
+        Long version = SEQUENCE.incrementAndGet();
+        Item current = item;
+        while (current != null) {
+            ItemGroup parent = current.getParent();
+            if (current instanceof TopLevelItem && parent instanceof ViewGroup) {
+                for (View view : ViewIndex.getViews((ViewGroup)parent)) {
+                    if (view.contains((TopLevelItem)current)) {
+                        VERSIONS.put(view.getViewUrl(), version);
+                    }
+                }
+            }
+            if (parent instanceof Item) {
+                current = (Item)parent;
+            } else {
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Marks every view as changed.
+     */
+    public static void changedAll() {
+        Long version = SEQUENCE.incrementAndGet();
+        for (View view : getViews()) {
+            VERSIONS.put(view.getViewUrl(), version);
+        }
+    }
+
+    /**
+     * All views that are tracked, including nested views.
+     *
+     * @return the views.
+     */
+    private static Iterable<View> getViews() {
+        return ViewIndex.getViews();
+    }
+
+    /**
+     * Bumps the views of a job when its builds start and complete.
+     */
+    @Extension
+    public static class RunChanges extends RunListener<Run> {
+
+        /**
+         * Default constructor.
+         */
+        public RunChanges() {
+            super(Run.class);
+        }
+
+        @Override
+        public void onStarted(Run run, TaskListener listener) {
+            changed(run.getParent());
+        }
+
+        @Override
+        public void onCompleted(Run run, TaskListener listener) {
+            changed(run.getParent());
+        }
+
+        @Override
+        public void onDeleted(Run run) {
+            changed(run.getParent());
+        }
+    }
+
+    /**
+     * Bumps all views when jobs come and go, since the view membership may change with them.
+     */
+    @Extension
+    public static class ItemChanges extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            changedAll();
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            changedAll();
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            changedAll();
+        }
+    }
+}
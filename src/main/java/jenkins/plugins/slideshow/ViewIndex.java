@@ -0,0 +1,515 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import hudson.model.View;
+import hudson.model.ViewGroup;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import jenkins.plugins.slideshow.model.ViewPage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An index from view URL to view, covering the views of Jenkins itself, views nested in other views
+ * and views of items that are view groups.
+ * It is kept up to date from the save and item events of the view groups, rebuilding only the group that changed.
+ * When a view is renamed, or an item it is nested in, the {@link ViewPage}s showing it are pointed to the new URL.
+ * The shows to change are found through an index from view URL to the shows showing it.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class ViewIndex {
+
+    private static final Logger logger = Logger.getLogger(ViewIndex.class.getName());
+
+    private static final ConcurrentMap<String, View> BY_URL = new ConcurrentHashMap<String, View>();
+
+    /**
+     * The URL each indexed view had when it was indexed, used to detect renames. Guarded by the class lock.
+     */
+    private static final Map<View, String> URLS = new IdentityHashMap<View, String>();
+
+    /**
+     * The views directly in each indexed group. Guarded by the class lock.
+     */
+    private static final Map<ViewGroup, List<View>> CHILDREN = new IdentityHashMap<ViewGroup, List<View>>();
+
+    /**
+     * The names of the slide shows with pages showing each view URL, so that a renamed view only touches those shows.
+     * Entries can be stale, each show is checked again before it is changed.
+     */
+    private static final ConcurrentMap<String, Set<String>> SHOWS = new ConcurrentHashMap<String, Set<String>>();
+
+    private static volatile boolean showsIndexed = false;
+    private static volatile boolean built = false;
+    private static volatile ViewCatalogue catalogue = ViewCatalogue.EMPTY;
+
+    /**
+     * Utility class.
+     */
+    private ViewIndex() {
+    }
+
+    /**
+     * Finds the view with the given URL.
+     *
+     * @param viewUrl the relative URL of the view.
+     * @return the view, or null if there is none.
+     */
+    public static View get(String viewUrl) {
+        if (viewUrl == null) {
+            return null;
+        }
+        ensureBuilt();
+        return BY_URL.get(viewUrl);
+    }
+
+    /**
+     * All indexed views.
+     *
+     * @return the views.
+     */
+    public static Collection<View> getViews() {
+        ensureBuilt();
+        return Collections.unmodifiableCollection(BY_URL.values());
+    }
+
+    /**
+     * The indexed views of one group, including the views nested in them.
+     *
+     * @param group the group.
+     * @return the views, empty if the group isn't indexed.
+     */
+    public static List<View> getViews(ViewGroup group) {
+        ensureBuilt();
+        List<View> views = new ArrayList<View>();
+        synchronized (ViewIndex.class) {
+            collect(group, views);
+        }
+        return views;
+    }
+
+    /**
+     * Adds the indexed views of one group, and of the groups nested in it, to the list. Must hold the class lock.
+     *
+     * @param group the group.
+     * @param views where to add the views.
+     */
+    private static void collect(ViewGroup group, List<View> views) {
+        List<View> children = CHILDREN.get(group);
+        if (children == null) {
+            return;
+        }
+        for (View view : children) {
+            views.add(view);
+            if (view instanceof ViewGroup && view != group) {
+                collect((ViewGroup)view, views);
+            }
+        }
+    }
+
+    /**
+     * Records which views the pages of a slide show are showing.
+     * Called each time the show publishes its pages.
+     *
+     * @param show the slide show.
+     */
+    public static void showing(SlideShow show) {
+        String name = show.getName();
+        if (name == null) {
+            return;
+        }
+        for (Page page : show.getPages()) {
+            if (page instanceof ViewPage) {
+                String url = ((ViewPage)page).getViewUrl();
+                if (url != null) {
+                    Set<String> names = SHOWS.get(url);
+                    if (names == null) {
+                        Set<String> created = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                        names = SHOWS.putIfAbsent(url, created);
+                        if (names == null) {
+                            names = created;
+                        }
+                    }
+                    names.add(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the views of all slide shows the first time it is needed.
+     * After that each show records its views when it is loaded or its pages change.
+     *
+     * @param plugin the plugin.
+     */
+    private static void indexShows(PluginImpl plugin) {
+        if (!showsIndexed) {
+            for (SlideShow show : plugin.getShows()) {
+                showing(show);
+            }
+            showsIndexed = true;
+        }
+    }
+
+    /**
+     * All indexed views as {@link ViewPage.ViewPojo}s sorted by their full name.
+     *
+     * @return the sorted views.
+     */
+    public static List<ViewPage.ViewPojo> getSortedViews() {
+        return getCatalogue().getViews();
+    }
+
+    /**
+     * The sorted and searchable catalogue of all indexed views.
+     * It is updated with each change to the index rather than rebuilt.
+     *
+     * @return the catalogue.
+     */
+    public static ViewCatalogue getCatalogue() {
+        ensureBuilt();
+        return catalogue;
+    }
+
+    /**
+     * Builds the index the first time it is needed.
+     */
+    private static void ensureBuilt() {
+        if (!built) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Indexes all view groups from scratch.
+     */
+    public static void rebuild() {
+        Hudson hudson = Hudson.getInstance();
+        if (hudson == null) {
+            return;
+        }
+        Changes changes = new Changes();
+        synchronized (ViewIndex.class) {
+            Set<ViewGroup> groups = Collections.newSetFromMap(new IdentityHashMap<ViewGroup, Boolean>());
+            groups.add(hudson);
+            for (Item item : hudson.getAllItems(Item.class)) {
+                if (item instanceof ViewGroup) {
+                    groups.add((ViewGroup)item);
+                }
+            }
+            for (ViewGroup group : new ArrayList<ViewGroup>(CHILDREN.keySet())) {
+                if (!groups.contains(group)) {
+                    remove(group, changes);
+                }
+            }
+            for (ViewGroup group : groups) {
+                update(group, changes);
+            }
+            catalogue = catalogue.with(changes.removed, changes.added);
+            built = true;
+        }
+        changes.apply();
+    }
+
+    /**
+     * Re-indexes the views of one group, and any groups nested in it.
+     *
+     * @param group the group that changed.
+     */
+    public static void update(ViewGroup group) {
+        if (!built) {
+            rebuild();
+            return;
+        }
+        Changes changes = new Changes();
+        synchronized (ViewIndex.class) {
+            update(group, changes);
+            catalogue = catalogue.with(changes.removed, changes.added);
+        }
+        changes.apply();
+    }
+
+    /**
+     * Removes the views of one group, and any groups nested in it, from the index.
+     *
+     * @param group the group that is gone.
+     */
+    public static void remove(ViewGroup group) {
+        Changes changes = new Changes();
+        synchronized (ViewIndex.class) {
+            remove(group, changes);
+            catalogue = catalogue.with(changes.removed, changes.added);
+        }
+        changes.apply();
+    }
+
+    /**
+     * Re-indexes the views of an item and of every item nested in it,
+     * since renaming a folder changes the URLs of all views below it.
+     *
+     * @param item the item that changed.
+     */
+    public static void update(Item item) {
+        if (!built) {
+            rebuild();
+            return;
+        }
+        Changes changes = new Changes();
+        synchronized (ViewIndex.class) {
+            update(item, changes);
+            catalogue = catalogue.with(changes.removed, changes.added);
+        }
+        changes.apply();
+    }
+
+    /**
+     * Removes the views of an item and of every item nested in it from the index.
+     *
+     * @param item the item that is gone.
+     */
+    public static void remove(Item item) {
+        Changes changes = new Changes();
+        synchronized (ViewIndex.class) {
+            remove(item, changes);
+            catalogue = catalogue.with(changes.removed, changes.added);
+        }
+        changes.apply();
+    }
+
+    /**
+     * Re-indexes the views of an item and of the items nested in it. Must hold the class lock.
+     *
+     * @param item    the item.
+     * @param changes where to record renamed and deleted views.
+     */
+    private static void update(Item item, Changes changes) {
+        if (item instanceof ViewGroup) {
+            update((ViewGroup)item, changes);
+        }
+        if (item instanceof ItemGroup) {
+            for (Item child : ((ItemGroup<? extends Item>)item).getItems()) {
+                update(child, changes);
+            }
+        }
+    }
+
+    /**
+     * Removes the views of an item and of the items nested in it from the index. Must hold the class lock.
+     *
+     * @param item    the item.
+     * @param changes where to record deleted views.
+     */
+    private static void remove(Item item, Changes changes) {
+        if (item instanceof ViewGroup) {
+            remove((ViewGroup)item, changes);
+        }
+        if (item instanceof ItemGroup) {
+            for (Item child : ((ItemGroup<? extends Item>)item).getItems()) {
+                remove(child, changes);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes the views of one group. Must hold the class lock.
+     *
+     * @param group   the group.
+     * @param changes where to record renamed and deleted views.
+     */
+    private static void update(ViewGroup group, Changes changes) {
+        List<View> now = new ArrayList<View>(group.getViews());
+        List<View> before = CHILDREN.put(group, now);
+        if (before != null) {
+            Set<View> current = Collections.newSetFromMap(new IdentityHashMap<View, Boolean>());
+            current.addAll(now);
+            for (View view : before) {
+                if (!current.contains(view)) {
+                    unindex(view, changes);
+                }
+            }
+        }
+        for (View view : now) {
+            String url = view.getViewUrl();
+            String oldUrl = URLS.put(view, url);
+            if (oldUrl != null && !oldUrl.equals(url)) {
+                if (BY_URL.get(oldUrl) == view) {
+                    BY_URL.remove(oldUrl);
+                }
+                changes.renamed.put(oldUrl, view);
+                changes.removed.add(oldUrl);
+            }
+            if (BY_URL.put(url, view) != view) {
+                changes.added.put(new ViewPage.ViewPojo(view), view.getDisplayName());
+            }
+            if (view instanceof ViewGroup && view != group) {
+                update((ViewGroup)view, changes);
+            }
+        }
+    }
+
+    /**
+     * Removes the views of one group from the index. Must hold the class lock.
+     *
+     * @param group   the group.
+     * @param changes where to record deleted views.
+     */
+    private static void remove(ViewGroup group, Changes changes) {
+        List<View> before = CHILDREN.remove(group);
+        if (before != null) {
+            for (View view : before) {
+                unindex(view, changes);
+            }
+        }
+    }
+
+    /**
+     * Removes a view, and anything nested in it, from the index. Must hold the class lock.
+     *
+     * @param view    the view.
+     * @param changes where to record the deleted view.
+     */
+    private static void unindex(View view, Changes changes) {
+        String url = URLS.remove(view);
+        if (url != null && BY_URL.get(url) == view) {
+            BY_URL.remove(url);
+            changes.deleted.add(url);
+            changes.removed.add(url);
+        }
+        if (view instanceof ViewGroup) {
+            remove((ViewGroup)view, changes);
+        }
+    }
+
+    /**
+     * The views that were renamed or deleted by an update of the index.
+     */
+    private static final class Changes {
+        private final Map<String, View> renamed = new HashMap<String, View>();
+        private final Set<String> deleted = new HashSet<String>();
+        private final Set<String> removed = new HashSet<String>();
+        private final Map<ViewPage.ViewPojo, String> added = new HashMap<ViewPage.ViewPojo, String>();
+
+        /**
+         * Points the view pages of the slide shows showing a renamed view at its new URL.
+         * Only the shows recorded for the old URL are looked at, each gets its changed pages published and saved.
+         * Must not be called while holding the class lock, since it loads and saves the shows.
+         */
+        private void apply() {
+            for (String url : deleted) {
+                logger.log(Level.FINE, "View {0} is gone, slide show pages showing it are missing.", url);
+            }
+            if (renamed.isEmpty()) {
+                return;
+            }
+            PluginImpl plugin = PluginImpl.getInstance();
+            if (plugin == null) {
+                return;
+            }
+            indexShows(plugin);
+            for (Map.Entry<String, View> entry : renamed.entrySet()) {
+                Set<String> names = SHOWS.remove(entry.getKey());
+                if (names == null) {
+                    continue;
+                }
+                ViewPage.ViewPojo view = new ViewPage.ViewPojo(entry.getValue());
+                for (String name : names) {
+                    SlideShow show = plugin.getShow(name);
+                    if (show != null && show.replaceView(entry.getKey(), view)) {
+                        try {
+                            plugin.save(show);
+                        } catch (IOException e) {
+                            logger.log(Level.WARNING, "Could not save slide show " + show.getName()
+                                    + " after a view was renamed.", e);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-indexes a view group when it is saved, which is what happens when views are added, renamed or removed.
+     */
+    @Extension
+    public static class ViewGroupSaves extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof ViewGroup) {
+                update((ViewGroup)o);
+            }
+        }
+    }
+
+    /**
+     * Keeps the view groups that are items in the index.
+     */
+    @Extension
+    public static class ViewGroupItems extends ItemListener {
+
+        @Override
+        public void onLoaded() {
+            rebuild();
+        }
+
+        @Override
+        public void onCreated(Item item) {
+            update(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            remove(item);
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            update(item);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.plugins.slideshow.model.SlideShow;
+import jenkins.plugins.slideshow.model.ViewPage;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps server side snapshots of the views shown by {@link ViewPage}s in snapshot mode,
+ * so that a view is rendered once per refresh no matter how many displays show it.
+ * The views are rendered in-process through Stapler, as the user of the display asking for the snapshot,
+ * so a snapshot never shows more than that user may see and is only shared with displays of the same user.
+ * Since rendering needs a request, stale snapshots are rendered again by the next display asking for them,
+ * the background worker only drops the snapshots no display has asked for in a while.
+ *
+ * @see Displays
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+@Extension
+public class ViewSnapshots extends AsyncPeriodicWork {
+
+    /**
+     * How long (in seconds) a snapshot is served before it is rendered again.
+     */
+    public static final int TTL = Integer.getInteger(ViewSnapshots.class.getName() + ".ttl", 30);
+
+    /**
+     * How often the background worker looks for snapshots to drop.
+     */
+    private static final long RECURRENCE_MS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * A snapshot no display has asked for in this long is dropped.
+     */
+    private static final long IDLE_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private static volatile ViewSnapshots instance;
+
+    private final SnapshotCache cache = new SnapshotCache(false);
+
+    /**
+     * Default constructor.
+     */
+    public ViewSnapshots() {
+        super("Slide show view snapshots");
+    }
+
+    /**
+     * The singleton instance.
+     *
+     * @return the instance.
+     */
+    public static ViewSnapshots getInstance() {
+        ViewSnapshots cached = instance;
+        if (cached == null) {
+            cached = Hudson.getInstance().getExtensionList(PeriodicWork.class).get(ViewSnapshots.class);
+            instance = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_MS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        cache.expire(IDLE_MS);
+    }
+
+    /**
+     * Gives the snapshot of the page's view, rendering it if there is no usable snapshot yet.
+     * Snapshots are shared between all pages showing the same view with the same header settings,
+     * for displays reaching Jenkins through the same root URL as the same user.
+     *
+     * @param page     the page.
+     * @param request  the request of the display asking for the snapshot.
+     * @param response the response to the display, which the view is not rendered to.
+     * @return the rendered view.
+     * @throws IOException if the view could not be rendered.
+     */
+    public CachedContent getSnapshot(ViewPage page, final StaplerRequest request, final StaplerResponse response)
+            throws IOException {
+        final SlideShow show = page.getParent();
+        final String viewUrl = page.getViewUrl();
+        final String rootPath = getRootPath(request);
+        final String referer = rootPath + "/" + SlideShows.URL_NAME + "/show/" + Util.rawEncode(show.getName());
+        String key = getKey(rootPath, viewUrl, show.isHideHeader(), show.isHideSidePanel(), show.isHideFooter(),
+                Hudson.getAuthentication().getName());
+        SnapshotCache.Loader loader = new SnapshotCache.Loader() {
+            @Override
+            public SnapshotCache.Snapshot load(SnapshotCache.Snapshot previous) throws IOException {
+                return render(request, response, rootPath, viewUrl, referer);
+            }
+        };
+        return cache.get(key, loader, 0, show.getName()).getContent();
+    }
+
+    /**
+     * The absolute URL of the Jenkins root as the display reaches it, taken from the URL of its request.
+     *
+     * @param request the request.
+     * @return the root URL, without a trailing slash.
+     */
+    static String getRootPath(HttpServletRequest request) {
+        String url = request.getRequestURL().toString();
+        String uri = request.getRequestURI();
+        String base = url;
+        if (uri != null && url.endsWith(uri)) {
+            base = url.substring(0, url.length() - uri.length());
+        }
+        return base + request.getContextPath();
+    }
+
+    /**
+     * The cache key of a snapshot, made of everything the rendered view depends on.
+     *
+     * @param rootPath      the root URL the display reaches Jenkins through.
+     * @param viewUrl       the relative URL of the view.
+     * @param hideHeader    if the header is hidden.
+     * @param hideSidePanel if the side panel is hidden.
+     * @param hideFooter    if the footer is hidden.
+     * @param user          the name of the user the view is rendered as.
+     * @return the key.
+     */
+    static String getKey(String rootPath, String viewUrl, boolean hideHeader, boolean hideSidePanel,
+                         boolean hideFooter, String user) {
+        StringBuilder key = new StringBuilder(rootPath).append('/').append(viewUrl);
+        key.append('#').append(hideHeader).append(',').append(hideSidePanel).append(',').append(hideFooter);
+        key.append('#').append(user);
+        return key.toString();
+    }
+
+    /**
+     * Renders the view in-process through Stapler, in the current thread and so as the current user.
+     * The request carries the slide show as referer so that {@link HideHeadersPageDecorator} applies its settings.
+     *
+     * @param request  the request of the display.
+     * @param response the response to the display.
+     * @param rootPath the root URL of the request.
+     * @param viewUrl  the relative URL of the view.
+     * @param referer  the URL of the slide show.
+     * @return the snapshot.
+     * @throws IOException if so.
+     */
+    private SnapshotCache.Snapshot render(StaplerRequest request, StaplerResponse response, String rootPath,
+                                          String viewUrl, String referer) throws IOException {
+        SnapshotRequest snapshotRequest = new SnapshotRequest(request, rootPath, "/" + viewUrl, referer);
+        SnapshotResponse snapshotResponse = new SnapshotResponse(response);
+        try {
+            request.getStapler().invoke(snapshotRequest, snapshotResponse, Hudson.getInstance(), "/" + viewUrl);
+        } catch (ServletException e) {
+            IOException io = new IOException("Rendering " + viewUrl + " failed");
+            io.initCause(e);
+            throw io;
+        }
+        if (snapshotResponse.getStatus() != HttpServletResponse.SC_OK) {
+            throw new IOException("Rendering " + viewUrl + " gave " + snapshotResponse.getStatus());
+        }
+        String html = snapshotResponse.getText();
+        return new SnapshotCache.Snapshot(CachedContent.fromText("text/html", withBase(html, rootPath + "/" + viewUrl)),
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TTL), null);
+    }
+
+    /**
+     * Adds a base tag to the html so that relative links keep working when it is served from the slide show.
+     *
+     * @param html the html.
+     * @param url  the URL it was fetched from.
+     * @return the html with a base tag.
+     */
+    static String withBase(String html, String url) {
+        int head = html.toLowerCase().indexOf("<head");
+        if (head < 0) {
+            return html;
+        }
+        int end = html.indexOf('>', head);
+        if (end < 0) {
+            return html;
+        }
+        return html.substring(0, end + 1) + "<base href=\"" + url + "\"/>" + html.substring(end + 1);
+    }
+
+    /**
+     * The display's request as the view sees it when it is rendered for a snapshot.
+     * It is a request for the view itself with the slide show as referer, the same as when a display shows the view
+     * live, so that {@link HideHeadersPageDecorator} recognizes it. It has none of the display's conditional
+     * or compression headers, since the snapshot is always rendered in full and stored uncompressed.
+     */
+    static final class SnapshotRequest extends HttpServletRequestWrapper {
+        private final String rootPath;
+        private final String path;
+        private final String referer;
+
+        /**
+         * Standard constructor.
+         *
+         * @param request  the display's request.
+         * @param rootPath the absolute root URL of the display's request.
+         * @param path     the path of the view, relative to the root and starting with a slash.
+         * @param referer  the absolute URL of the slide show.
+         */
+        SnapshotRequest(HttpServletRequest request, String rootPath, String path, String referer) {
+            super(request);
+            this.rootPath = rootPath;
+            this.path = path;
+            this.referer = referer;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return path;
+        }
+
+        @Override
+        public String getServletPath() {
+            return "";
+        }
+
+        @Override
+        public String getRequestURI() {
+            return getContextPath() + path;
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            return new StringBuffer(rootPath).append(path);
+        }
+
+        @Override
+        public String getQueryString() {
+            return null;
+        }
+
+        /**
+         * If the header is left out of the request.
+         *
+         * @param name the name of the header.
+         * @return true if so.
+         */
+        private static boolean isHidden(String name) {
+            return "Accept-Encoding".equalsIgnoreCase(name)
+                    || "If-Modified-Since".equalsIgnoreCase(name)
+                    || "If-None-Match".equalsIgnoreCase(name);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if ("Referer".equalsIgnoreCase(name)) {
+                return referer;
+            }
+            if (isHidden(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration getHeaders(String name) {
+            if ("Referer".equalsIgnoreCase(name)) {
+                return Collections.enumeration(Collections.singletonList(referer));
+            }
+            if (isHidden(name)) {
+                return Collections.enumeration(Collections.emptyList());
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            if (isHidden(name)) {
+                return -1;
+            }
+            return super.getDateHeader(name);
+        }
+    }
+
+    /**
+     * Captures what the view renders instead of sending it to the display.
+     * Headers are dropped, only the status and the body are kept.
+     */
+    private static final class SnapshotResponse extends HttpServletResponseWrapper {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private int status = SC_OK;
+        private String contentType;
+        private String encoding = CachedContent.ENCODING;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        /**
+         * Standard constructor.
+         *
+         * @param response the display's response, which is never written to.
+         */
+        private SnapshotResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        /**
+         * The status the view was rendered with.
+         *
+         * @return the status.
+         */
+        private int getStatus() {
+            return status;
+        }
+
+        /**
+         * The rendered body.
+         *
+         * @return the body.
+         * @throws IOException if the body can't be decoded.
+         */
+        private String getText() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            return buffer.toString(encoding);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (stream == null) {
+                stream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        buffer.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        buffer.write(b, off, len);
+                    }
+                };
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(buffer, encoding));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            status = sc;
+        }
+
+        @Override
+        public void setStatus(int sc, String sm) {
+            status = sc;
+        }
+
+        @Override
+        public void sendError(int sc) {
+            status = sc;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) {
+            status = sc;
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+            status = SC_FOUND;
+        }
+
+        @Override
+        public void setContentType(String type) {
+            contentType = type;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            if (writer == null) {
+                encoding = charset;
+            }
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            return encoding;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public void flushBuffer() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            status = SC_OK;
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (writer != null) {
+                writer.flush();
+            }
+            buffer.reset();
+        }
+    }
+}
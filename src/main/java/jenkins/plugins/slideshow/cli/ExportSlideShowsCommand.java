@@ -0,0 +1,68 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.cli;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.model.Hudson;
+import jenkins.plugins.slideshow.CachedContent;
+import jenkins.plugins.slideshow.Messages;
+import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.ShowTransfer;
+import org.kohsuke.args4j.Option;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * CLI command that writes all slide shows to standard out.
+ * The output can be given to {@link ImportSlideShowsCommand}.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ * @see ShowTransfer
+ */
+@Extension
+public class ExportSlideShowsCommand extends CLICommand {
+
+    /**
+     * The format to write, <code>xml</code> or <code>ndjson</code>.
+     */
+    @Option(name = "-format", usage = "xml (the default) or ndjson")
+    public String format;
+
+    @Override
+    public String getShortDescription() {
+        return Messages.ExportSlideShowsCommand_ShortDescription();
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Hudson.getInstance().checkPermission(PluginImpl.CONFIGURE);
+        Writer out = new BufferedWriter(new OutputStreamWriter(stdout, CachedContent.ENCODING));
+        ShowTransfer.export(out, ShowTransfer.Format.fromName(format));
+        return 0;
+    }
+}
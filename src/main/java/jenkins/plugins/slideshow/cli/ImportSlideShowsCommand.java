@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.cli;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.model.Hudson;
+import jenkins.plugins.slideshow.Messages;
+import jenkins.plugins.slideshow.ShowTransfer;
+import org.kohsuke.args4j.Option;
+
+/**
+ * CLI command that imports slide shows from standard in, as written by {@link ExportSlideShowsCommand}.
+ * Either all shows are imported or, if any of them is invalid, none.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ * @see ShowTransfer
+ */
+@Extension
+public class ImportSlideShowsCommand extends CLICommand {
+
+    /**
+     * The format to read, <code>xml</code> or <code>ndjson</code>.
+     */
+    @Option(name = "-format", usage = "xml (the default) or ndjson")
+    public String format;
+
+    /**
+     * If the shows that aren't imported should be removed.
+     */
+    @Option(name = "-replace", usage = "Remove the slide shows that aren't imported")
+    public boolean replace;
+
+    @Override
+    public String getShortDescription() {
+        return Messages.ImportSlideShowsCommand_ShortDescription();
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+        ShowTransfer.Result result = ShowTransfer.importShows(stdin, ShowTransfer.Format.fromName(format), replace);
+        if (!result.isApplied()) {
+            for (String error : result.getErrors()) {
+                stderr.println(error);
+            }
+            stderr.println("Nothing was imported.");
+            return 1;
+        }
+        stdout.println("Imported " + result.getImported() + " slide shows, removed " + result.getRemoved() + ".");
+        return 0;
+    }
+}
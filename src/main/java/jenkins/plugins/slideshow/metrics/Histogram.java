@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.metrics;
+
+import net.sf.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non negative values in power of two buckets.
+ * Each stripe has its own row of buckets, so recording a value is one atomic add to a cell that
+ * other threads rarely touch. Percentiles are estimated as the upper bound of the bucket they fall in.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class Histogram {
+
+    /**
+     * One bucket per bit of a long value.
+     */
+    private static final int BUCKETS = 64;
+
+    private static final double P50 = 0.5;
+    private static final double P90 = 0.9;
+    private static final double P99 = 0.99;
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(StripedCounter.STRIPES * BUCKETS);
+    private final StripedCounter sum = new StripedCounter();
+
+    /**
+     * Standard constructor.
+     *
+     * @param unit the unit of the recorded values, for display.
+     */
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value the value.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        int bucket = BUCKETS - Long.numberOfLeadingZeros(v);
+        if (bucket >= BUCKETS) {
+            bucket = BUCKETS - 1;
+        }
+        buckets.incrementAndGet(StripedCounter.stripe() * BUCKETS + bucket);
+        sum.add(v);
+    }
+
+    /**
+     * Records the time since the start, in microseconds.
+     *
+     * @param startNanos the start from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record((System.nanoTime() - startNanos) / NANOS_PER_MICRO);
+    }
+
+    /**
+     * The number of recorded values in each bucket, summed over all stripes.
+     *
+     * @return the counts.
+     */
+    private long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (int s = 0; s < StripedCounter.STRIPES; s++) {
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] += buckets.get(s * BUCKETS + b);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The number of recorded values.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        long count = 0;
+        for (long c : counts()) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * The sum of all recorded values.
+     *
+     * @return the sum.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * The estimated value below which the given fraction of the recorded values fall.
+     *
+     * @param fraction the fraction, between 0 and 1.
+     * @return the upper bound of the bucket the percentile falls in, or 0 if nothing is recorded.
+     */
+    public long getPercentile(double fraction) {
+        return percentile(counts(), fraction);
+    }
+
+    /**
+     * Finds the percentile in the bucket counts.
+     *
+     * @param counts   the bucket counts.
+     * @param fraction the fraction.
+     * @return the upper bound of the bucket.
+     */
+    private static long percentile(long[] counts, double fraction) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(total * fraction);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return upperBound(b);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * The largest value that falls in the bucket.
+     *
+     * @param bucket the bucket.
+     * @return the value.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << bucket) - 1;
+    }
+
+    /**
+     * The histogram summarized as JSON: count, sum, mean and some percentiles.
+     *
+     * @return the summary.
+     */
+    public JSONObject toJSON() {
+        long[] counts = counts();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        long total = getSum();
+        JSONObject json = new JSONObject();
+        json.put("unit", unit);
+        json.put("count", count);
+        json.put("sum", total);
+        if (count > 0) {
+            json.put("mean", total / count);
+        } else {
+            json.put("mean", 0);
+        }
+        json.put("p50", percentile(counts, P50));
+        json.put("p90", percentile(counts, P90));
+        json.put("p99", percentile(counts, P99));
+        return json;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.metrics;
+
+import net.sf.json.JSONObject;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters and latency histograms for the plugin's hot paths.
+ * Exposed over JMX as {@value #OBJECT_NAME} and as JSON by {@link jenkins.plugins.slideshow.SlideShows}.
+ * All updates are lock-free.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class SlideShowMetrics implements SlideShowMetricsMBean {
+
+    /**
+     * The JMX name of the metrics.
+     */
+    public static final String OBJECT_NAME = "jenkins.plugins.slideshow:type=Metrics";
+
+    private static final Logger logger = Logger.getLogger(SlideShowMetrics.class.getName());
+
+    private static final double P50 = 0.5;
+    private static final double P99 = 0.99;
+
+    private static final SlideShowMetrics INSTANCE = new SlideShowMetrics();
+
+    private final ConcurrentMap<String, StripedCounter> pageRequestsPerShow =
+            new ConcurrentHashMap<String, StripedCounter>();
+    private final Histogram pageRequestTime = new Histogram("us");
+    private final Histogram htmlServeTime = new Histogram("us");
+    private final StripedCounter decoratorEvaluations = new StripedCounter();
+    private final StripedCounter decoratorHits = new StripedCounter();
+    private final Histogram saveTime = new Histogram("us");
+    private final Histogram saveSize = new Histogram("bytes");
+
+    /**
+     * Singleton.
+     */
+    private SlideShowMetrics() {
+    }
+
+    /**
+     * The metrics.
+     *
+     * @return the instance.
+     */
+    public static SlideShowMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records that a display asked for a page of the show.
+     *
+     * @param show       the name of the show.
+     * @param startNanos when the request started, from {@link System#nanoTime()}.
+     */
+    public void pageRequested(String show, long startNanos) {
+        StripedCounter counter = pageRequestsPerShow.get(show);
+        if (counter == null) {
+            StripedCounter created = new StripedCounter();
+            counter = pageRequestsPerShow.putIfAbsent(show, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.increment();
+        pageRequestTime.recordSince(startNanos);
+    }
+
+    /**
+     * Drops the counters of a show that is gone.
+     *
+     * @param show the name of the show.
+     */
+    public void forget(String show) {
+        pageRequestsPerShow.remove(show);
+    }
+
+    /**
+     * Records that a html page was served.
+     *
+     * @param startNanos when the request started, from {@link System#nanoTime()}.
+     */
+    public void htmlServed(long startNanos) {
+        htmlServeTime.recordSince(startNanos);
+    }
+
+    /**
+     * Records that the page decorator was asked for the slide show of a request.
+     *
+     * @param hit if a slide show was found.
+     */
+    public void decoratorEvaluated(boolean hit) {
+        decoratorEvaluations.increment();
+        if (hit) {
+            decoratorHits.increment();
+        }
+    }
+
+    /**
+     * Records a save.
+     *
+     * @param startNanos when the save started, from {@link System#nanoTime()}.
+     * @param bytes      the size of the saved file.
+     */
+    public void saved(long startNanos, long bytes) {
+        saveTime.recordSince(startNanos);
+        saveSize.record(bytes);
+    }
+
+    @Override
+    public long getPageRequests() {
+        return pageRequestTime.getCount();
+    }
+
+    @Override
+    public long getPageRequestTimeP50() {
+        return pageRequestTime.getPercentile(P50);
+    }
+
+    @Override
+    public long getPageRequestTimeP99() {
+        return pageRequestTime.getPercentile(P99);
+    }
+
+    @Override
+    public long getHtmlPageServes() {
+        return htmlServeTime.getCount();
+    }
+
+    @Override
+    public long getHtmlPageServeTimeP99() {
+        return htmlServeTime.getPercentile(P99);
+    }
+
+    @Override
+    public long getDecoratorEvaluations() {
+        return decoratorEvaluations.sum();
+    }
+
+    @Override
+    public long getDecoratorHits() {
+        return decoratorHits.sum();
+    }
+
+    @Override
+    public long getSaves() {
+        return saveTime.getCount();
+    }
+
+    @Override
+    public long getSaveTimeP99() {
+        return saveTime.getPercentile(P99);
+    }
+
+    @Override
+    public long getSavedBytes() {
+        return saveSize.getSum();
+    }
+
+    /**
+     * All metrics as JSON, including the page requests of each show.
+     *
+     * @return the metrics.
+     */
+    public JSONObject toJSON() {
+        JSONObject perShow = new JSONObject();
+        for (Map.Entry<String, StripedCounter> entry : pageRequestsPerShow.entrySet()) {
+            perShow.put(entry.getKey(), entry.getValue().sum());
+        }
+        JSONObject decorator = new JSONObject();
+        decorator.put("evaluations", getDecoratorEvaluations());
+        decorator.put("hits", getDecoratorHits());
+        JSONObject json = new JSONObject();
+        json.put("pageRequests", perShow);
+        json.put("pageRequestTime", pageRequestTime.toJSON());
+        json.put("htmlPageServeTime", htmlServeTime.toJSON());
+        json.put("decorator", decorator);
+        json.put("saveTime", saveTime.toJSON());
+        json.put("saveSize", saveSize.toJSON());
+        return json;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     */
+    public static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Could not register the slide show metrics with JMX.", e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     */
+    public static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "Could not unregister the slide show metrics from JMX.", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.metrics;
+
+/**
+ * The JMX view of {@link SlideShowMetrics}.
+ * Times are in microseconds and sizes in bytes.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public interface SlideShowMetricsMBean {
+
+    /**
+     * The number of page requests from displays, over all shows.
+     *
+     * @return the count.
+     */
+    long getPageRequests();
+
+    /**
+     * The median time to answer a page request.
+     *
+     * @return the time in microseconds.
+     */
+    long getPageRequestTimeP50();
+
+    /**
+     * The 99th percentile time to answer a page request.
+     *
+     * @return the time in microseconds.
+     */
+    long getPageRequestTimeP99();
+
+    /**
+     * The number of times a html page was served.
+     *
+     * @return the count.
+     */
+    long getHtmlPageServes();
+
+    /**
+     * The 99th percentile time to serve a html page.
+     *
+     * @return the time in microseconds.
+     */
+    long getHtmlPageServeTimeP99();
+
+    /**
+     * The number of times the page decorator was asked for the slide show of a request.
+     *
+     * @return the count.
+     */
+    long getDecoratorEvaluations();
+
+    /**
+     * The number of decorator evaluations that found a slide show.
+     *
+     * @return the count.
+     */
+    long getDecoratorHits();
+
+    /**
+     * The number of times the plugin configuration or a show was saved.
+     *
+     * @return the count.
+     */
+    long getSaves();
+
+    /**
+     * The 99th percentile time to save.
+     *
+     * @return the time in microseconds.
+     */
+    long getSaveTimeP99();
+
+    /**
+     * The total size of everything saved.
+     *
+     * @return the size in bytes.
+     */
+    long getSavedBytes();
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter spread over several padded cells, so that threads updating it at the same time
+ * mostly hit different cache lines instead of contending on one value.
+ * Reading the total sums all cells, which is cheap compared to how rarely it is done.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public final class StripedCounter {
+
+    /**
+     * The number of cells, a power of two.
+     */
+    static final int STRIPES = stripes();
+
+    /**
+     * Distance between two used cells, so that each is on its own 64 byte cache line.
+     */
+    private static final int PADDING = 8;
+
+    /**
+     * The largest number of cells.
+     */
+    private static final int MAX_STRIPES = 64;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    /**
+     * Adds one.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Adds the value.
+     *
+     * @param value the value to add.
+     */
+    public void add(long value) {
+        cells.addAndGet(stripe() * PADDING, value);
+    }
+
+    /**
+     * The total of all cells.
+     *
+     * @return the sum.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * The cell of the current thread.
+     *
+     * @return the stripe index.
+     */
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int)(id ^ (id >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Twice the number of processors, rounded up to a power of two and capped.
+     *
+     * @return the number of stripes.
+     */
+    private static int stripes() {
+        int wanted = Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 2);
+        int stripes = 1;
+        while (stripes < wanted) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
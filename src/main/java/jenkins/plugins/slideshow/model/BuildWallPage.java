@@ -0,0 +1,257 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.slideshow.model;
+
+import hudson.Extension;
+import hudson.model.Descriptor;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.util.FormValidation;
+import jenkins.plugins.slideshow.BuildStatusIndex;
+import jenkins.plugins.slideshow.CachedContent;
+import jenkins.plugins.slideshow.Messages;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A page showing a wall of job status tiles.
+ * The tiles come from the {@link BuildStatusIndex}, so showing or refreshing the wall never renders a view
+ * or walks any builds. The page itself is a small static html shell that asks for what changed every few seconds.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class BuildWallPage extends Page {
+
+    /**
+     * The resource with the html shell of the wall.
+     */
+    private static final String SHELL_RESOURCE = "BuildWallPage/wall.html";
+
+    private static volatile CachedContent shell;
+
+    private String include;
+    private transient volatile Pattern includePattern;
+
+    /**
+     * Standard constructor.
+     *
+     * @param overrideTime the display time if it is overridden.
+     * @param refresh      how long a preloaded page stays fresh, or null.
+     * @param include      a regular expression matching the full names of the jobs to show, or empty for all jobs.
+     */
+    @DataBoundConstructor
+    public BuildWallPage(Time overrideTime, Refresh refresh, String include) {
+        super(overrideTime, refresh);
+        this.include = include;
+        this.includePattern = compile(include);
+    }
+
+    /**
+     * Default constructor.
+     * <strong>Do not use unless you are a serializer.</strong>
+     */
+    public BuildWallPage() {
+    }
+
+    /**
+     * A regular expression matching the full names of the jobs to show, or empty for all jobs.
+     *
+     * @return the expression.
+     */
+    @Exported
+    public String getInclude() {
+        return include;
+    }
+
+    /**
+     * Compiles the include expression.
+     *
+     * @param expression the expression.
+     * @return the pattern, or null to include all jobs.
+     */
+    private static Pattern compile(String expression) {
+        if (expression == null || expression.trim().length() == 0) {
+            return null;
+        }
+        return Pattern.compile(expression.trim());
+    }
+
+    /**
+     * Called by XStream after the page is loaded from disk, compiles the include expression.
+     *
+     * @return this object.
+     */
+    private Object readResolve() {
+        includePattern = compile(include);
+        return this;
+    }
+
+    @Override
+    public String getFullDisplayUrl() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayUrl() {
+        return super.getDisplayUrl() + "/wall";
+    }
+
+    /**
+     * The wall keeps itself up to date, so a loaded wall never needs to be reloaded.
+     *
+     * @return always 0.
+     */
+    @Override
+    public long getContentVersion() {
+        return 0;
+    }
+
+    /**
+     * Serves the html shell of the wall, the same for every wall.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doWall(StaplerRequest request, StaplerResponse response) throws IOException {
+        getShell().serve(request, response);
+    }
+
+    /**
+     * Serves the statuses that changed after the given sequence number as JSON.
+     * The answer is <code>{"seq":latest,"reset":false,"jobs":[{"k":key,"n":name,"r":result,"b":building}]}</code>.
+     * Only jobs that the user can read are included.
+     * Removed jobs are given as <code>{"k":key,"x":true}</code>, where the key is a digest of the job's name,
+     * so that the wall can drop them without learning anything about jobs it doesn't show.
+     * <code>reset</code> is true when the wall has been away so long that it has to start over.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param since    the sequence number the wall has seen, or 0 for everything.
+     * @throws IOException if so.
+     */
+    public void doFeed(StaplerRequest request, StaplerResponse response,
+                       @QueryParameter long since) throws IOException {
+        long sequence = BuildStatusIndex.getSequence();
+        boolean reset = BuildStatusIndex.isForgotten(since);
+        if (reset) {
+            since = 0;
+        }
+        JSONArray jobs = new JSONArray();
+        if (since < sequence) {
+            Hudson hudson = Hudson.getInstance();
+            for (BuildStatusIndex.Status status : BuildStatusIndex.changesSince(since, includePattern)) {
+                JSONObject job = new JSONObject();
+                job.put("k", status.getKey());
+                if (status.isRemoved()) {
+                    job.put("x", true);
+                } else {
+                    Job item = hudson.getItemByFullName(status.getFullName(), Job.class);
+                    if (item == null || !item.hasPermission(Item.READ)) {
+                        continue;
+                    }
+                    job.put("n", status.getDisplayName());
+                    job.put("r", status.getResult());
+                    job.put("b", status.isBuilding());
+                }
+                jobs.add(job);
+            }
+        }
+        JSONObject json = new JSONObject();
+        json.put("seq", sequence);
+        json.put("reset", reset);
+        json.put("jobs", jobs);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType("application/json;charset=" + CachedContent.ENCODING);
+        response.getWriter().write(json.toString());
+    }
+
+    /**
+     * The html shell, read once from the plugin's resources.
+     *
+     * @return the shell.
+     * @throws IOException if it can't be read.
+     */
+    private static CachedContent getShell() throws IOException {
+        CachedContent current = shell;
+        if (current == null) {
+            current = CachedContent.fromResource(BuildWallPage.class, SHELL_RESOURCE, "text/html");
+            shell = current;
+        }
+        return current;
+    }
+
+    @Override
+    public FormValidation check() {
+        FormValidation validation = super.check();
+        if (validation.kind != FormValidation.Kind.OK) {
+            return validation;
+        }
+        return ((BuildWallPageDescriptor)getDescriptor()).doCheckInclude(include);
+    }
+
+    @Override
+    public Descriptor<Page> getDescriptor() {
+        return Hudson.getInstance().getDescriptorByType(BuildWallPageDescriptor.class);
+    }
+
+    /**
+     * The descriptor for {@link BuildWallPage}.
+     */
+    @Extension
+    public static class BuildWallPageDescriptor extends PageDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return Messages.BuildWallPage();
+        }
+
+        /**
+         * Checks that the include expression is a valid regular expression.
+         * Called from Jelly.
+         *
+         * @param value the expression.
+         * @return {@link FormValidation#ok()} if so.
+         */
+        public FormValidation doCheckInclude(@QueryParameter String value) {
+            try {
+                compile(value);
+                return FormValidation.ok();
+            } catch (PatternSyntaxException e) {
+                return FormValidation.error("Not a valid regular expression: " + e.getDescription());
+            }
+        }
+    }
+}
@@ -27,8 +27,17 @@ package jenkins.plugins.slideshow.model;
 import hudson.Extension;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
+import jenkins.plugins.slideshow.CachedContent;
+import jenkins.plugins.slideshow.HtmlTemplate;
 import jenkins.plugins.slideshow.Messages;
+import jenkins.plugins.slideshow.metrics.SlideShowMetrics;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
 
 /**
  * A Page type where the user can input arbitrary html code.
@@ -53,7 +62,26 @@ public class HtmlPage extends Page {
      */
     public static final String HTML_TAG_START = "<html";
 
+    /**
+     * The longest html (in characters) that is served as preview, longer html is cut.
+     */
+    public static final int PREVIEW_MAX_LENGTH = 16 * 1024;
+
+    /**
+     * How long (in seconds) browsers may reuse a preview.
+     */
+    private static final int PREVIEW_MAX_AGE = 60;
+
+    private static final Pattern SCRIPT = Pattern.compile("(?is)<script.*?(?:</script\\s*>|$)");
+    private static final Pattern WHITESPACE_BETWEEN_TAGS = Pattern.compile(">\\s+<");
+    private static final Pattern LEADING_WHITESPACE = Pattern.compile("(?m)^[ \\t]+");
+
     private String html;
+    private boolean minify;
+    private boolean template;
+    private transient volatile CachedContent content;
+    private transient volatile HtmlTemplate compiled;
+    private transient volatile CachedContent preview;
 
     /**
      * Standard constructor.
@@ -62,10 +90,42 @@ public class HtmlPage extends Page {
      * @param html         the html code, if the code is not stasrting with &lt;html&gt;
      *                     it will be decorated with an empty html header and body tag..
      */
-    @DataBoundConstructor
     public HtmlPage(Time overrideTime, String html) {
-        super(overrideTime);
+        this(overrideTime, null, html, false);
+    }
+
+    /**
+     * Standard constructor.
+     *
+     * @param overrideTime the display time if it is overridden.
+     * @param refresh      how long a preloaded page stays fresh, or null.
+     * @param html         the html code, if the code is not stasrting with &lt;html&gt;
+     *                     it will be decorated with an empty html header and body tag..
+     * @param minify       if insignificant whitespace should be removed from the served html.
+     */
+    public HtmlPage(Time overrideTime, Refresh refresh, String html, boolean minify) {
+        this(overrideTime, refresh, html, minify, false);
+    }
+
+    /**
+     * Standard constructor.
+     *
+     * @param overrideTime the display time if it is overridden.
+     * @param refresh      how long a preloaded page stays fresh, or null.
+     * @param html         the html code, if the code is not stasrting with &lt;html&gt;
+     *                     it will be decorated with an empty html header and body tag..
+     * @param minify       if insignificant whitespace should be removed from the served html.
+     * @param template     if placeholders in the html should be replaced with live values.
+     * @see HtmlTemplate
+     */
+    @DataBoundConstructor
+    public HtmlPage(Time overrideTime, Refresh refresh, String html, boolean minify, boolean template) {
+        super(overrideTime, refresh);
         this.html = HtmlPageDescriptor.decorateIfNeeded(html);
+        this.minify = minify;
+        this.template = template;
+        this.content = encode();
+        this.compiled = compile();
     }
 
     /**
@@ -80,15 +140,158 @@ public class HtmlPage extends Page {
      *
      * @return the user's html.
      */
+    @Exported
     public String getHtml() {
         return html;
     }
 
+    /**
+     * If insignificant whitespace is removed from the served html.
+     *
+     * @return true if so.
+     */
+    @Exported
+    public boolean isMinify() {
+        return minify;
+    }
+
+    /**
+     * If placeholders like <code>${job:foo/lastBuild.result}</code> in the html are replaced with live values.
+     *
+     * @return true if so.
+     * @see HtmlTemplate
+     */
+    @Exported
+    public boolean isTemplate() {
+        return template;
+    }
+
+    /**
+     * The served html, encoded and compressed.
+     *
+     * @return the content.
+     */
+    public CachedContent getContent() {
+        CachedContent current = content;
+        if (current == null) {
+            current = encode();
+            content = current;
+        }
+        return current;
+    }
+
+    /**
+     * Encodes the html into what is served to the displays.
+     *
+     * @return the content.
+     */
+    private CachedContent encode() {
+        return CachedContent.fromText("text/html", getServedHtml());
+    }
+
+    /**
+     * Compiles the html into a template, if it is one.
+     *
+     * @return the template, or null if this page isn't a template.
+     */
+    private HtmlTemplate compile() {
+        if (!template) {
+            return null;
+        }
+        return HtmlTemplate.compile(getServedHtml());
+    }
+
+    /**
+     * The html as it is served, minified if that is wanted.
+     *
+     * @return the html.
+     */
+    private String getServedHtml() {
+        if (minify) {
+            return HtmlPageDescriptor.minify(html);
+        }
+        return html;
+    }
+
+    /**
+     * Called by XStream after the page is loaded from disk, encodes the html right away.
+     *
+     * @return this object.
+     */
+    private Object readResolve() {
+        content = encode();
+        compiled = compile();
+        return this;
+    }
+
+    /**
+     * Serves the pre-encoded html to a display.
+     * Conditional requests are answered with 304 and gzip is used if the client accepts it.
+     * A template is instead written segment by segment straight to the response, with the current values.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doContent(StaplerRequest request, StaplerResponse response) throws IOException {
+        long start = System.nanoTime();
+        HtmlTemplate current = compiled;
+        if (template && current == null) {
+            current = compile();
+            compiled = current;
+        }
+        if (current != null) {
+            response.setHeader("Cache-Control", "no-cache");
+            response.setContentType("text/html;charset=" + CachedContent.ENCODING);
+            current.write(response.getWriter());
+        } else {
+            getContent().serve(request, response);
+        }
+        SlideShowMetrics.getInstance().htmlServed(start);
+    }
+
+    /**
+     * Serves a small preview of the html for the management page.
+     * Scripts are removed and long html is cut at {@link #PREVIEW_MAX_LENGTH} characters.
+     * The preview is built the first time it is asked for and kept with the page.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doPreview(StaplerRequest request, StaplerResponse response) throws IOException {
+        CachedContent current = preview;
+        if (current == null) {
+            String text = SCRIPT.matcher(html).replaceAll("");
+            if (text.length() > PREVIEW_MAX_LENGTH) {
+                text = text.substring(0, PREVIEW_MAX_LENGTH);
+            }
+            current = CachedContent.fromText("text/html", text);
+            preview = current;
+        }
+        current.serve(request, response, "private, max-age=" + PREVIEW_MAX_AGE);
+    }
+
+    /**
+     * The URL to the preview of this page, including the context root.
+     *
+     * @return the URL.
+     * @see #doPreview(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse)
+     */
+    public String getPreviewUrl() {
+        return getParent().getViewUrl() + "/page/" + getIndex() + "/preview";
+    }
+
     @Override
     public String getFullDisplayUrl() {
         return null;
     }
 
+    @Override
+    public String getDisplayUrl() {
+        return super.getDisplayUrl() + "/content";
+    }
+
     @Override
     public Descriptor<Page> getDescriptor() {
         return Hudson.getInstance().getDescriptorByType(HtmlPageDescriptor.class);
@@ -119,6 +322,23 @@ public class HtmlPage extends Page {
             return html;
         }
 
+        /**
+         * Removes whitespace that doesn't affect how the html is rendered:
+         * indentation and whitespace between tags is collapsed.
+         * Html containing pre or textarea tags is left alone.
+         *
+         * @param html the html to minify.
+         * @return the minified html.
+         */
+        public static String minify(String html) {
+            String lower = html.toLowerCase();
+            if (lower.contains("<pre") || lower.contains("<textarea")) {
+                return html;
+            }
+            html = LEADING_WHITESPACE.matcher(html).replaceAll("");
+            return WHITESPACE_BETWEEN_TAGS.matcher(html).replaceAll("> <");
+        }
+
         @Override
         public String getDisplayName() {
             return Messages.HtmlPage();
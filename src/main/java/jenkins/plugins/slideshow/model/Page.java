@@ -30,8 +30,11 @@ import hudson.model.Hudson;
 import hudson.util.FormValidation;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for Pages in a {@link }SlideShow}.
@@ -48,10 +51,13 @@ import java.util.Iterator;
  *
  * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
  */
-public abstract class Page implements Describable<Page> {
+@ExportedBean
+public abstract class Page implements Describable<Page>, Cloneable {
 
     private SlideShow parent;
+    private transient int index = -1;
     private Time overrideTime = null;
+    private Refresh refresh = null;
 
     /**
      * Standard constructor.
@@ -62,6 +68,17 @@ public abstract class Page implements Describable<Page> {
         this.overrideTime = overrideTime;
     }
 
+    /**
+     * Standard constructor.
+     *
+     * @param overrideTime the time to override, or null to not.
+     * @param refresh      how often a preloaded page should be reloaded, or null to reload it every time it is shown.
+     */
+    protected Page(Time overrideTime, Refresh refresh) {
+        this.overrideTime = overrideTime;
+        this.refresh = refresh;
+    }
+
     /**
      * Default constructor.
      * <strong>Do not use unless you are a serializer.</strong>
@@ -74,6 +91,7 @@ public abstract class Page implements Describable<Page> {
      *
      * @return true if so.
      */
+    @Exported
     public boolean isOverrideTime() {
         return overrideTime != null;
     }
@@ -94,6 +112,45 @@ public abstract class Page implements Describable<Page> {
      */
     public void setOverrideTime(Time overrideTime) {
         this.overrideTime = overrideTime;
+        if (parent != null) {
+            parent.invalidate();
+        }
+    }
+
+    /**
+     * How long a display that keeps its pages loaded may show this page before reloading it,
+     * or null if it should be reloaded every time it is shown.
+     *
+     * @return the refresh setting.
+     */
+    public Refresh getRefresh() {
+        return refresh;
+    }
+
+    /**
+     * How long a display that keeps its pages loaded may show this page before reloading it,
+     * or null if it should be reloaded every time it is shown.
+     *
+     * @param refresh the refresh setting.
+     */
+    public void setRefresh(Refresh refresh) {
+        this.refresh = refresh;
+        if (parent != null) {
+            parent.invalidate();
+        }
+    }
+
+    /**
+     * The number of milliseconds a preloaded page stays fresh, or 0 if it should be reloaded every time.
+     *
+     * @return the time to live in milliseconds.
+     */
+    @Exported
+    public long getRefreshMs() {
+        if (refresh == null) {
+            return 0;
+        }
+        return TimeUnit.SECONDS.toMillis(refresh.getTtl());
     }
 
     /**
@@ -102,6 +159,7 @@ public abstract class Page implements Describable<Page> {
      *
      * @return the time in seconds to show this page before requesting the next one.
      */
+    @Exported(name = "time")
     public int getSpecifiedTime() {
         if (this.overrideTime != null) {
             return overrideTime.getTime();
@@ -110,6 +168,62 @@ public abstract class Page implements Describable<Page> {
         }
     }
 
+    /**
+     * A version of the page's content that changes whenever what the page shows changes.
+     * Displays that have the page loaded with the same version can show it again without reloading it.
+     *
+     * @return the version, or -1 if it isn't known and the page should always be reloaded.
+     */
+    public long getContentVersion() {
+        return -1;
+    }
+
+    /**
+     * A shallow copy of this page without a parent,
+     * so that a page can be changed without touching the one in the show's published snapshot.
+     *
+     * @return the copy.
+     */
+    Page copy() {
+        try {
+            Page copy = (Page)super.clone();
+            copy.parent = null;
+            copy.index = -1;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Pages are cloneable", e);
+        }
+    }
+
+    /**
+     * Checks that the page can be shown, for pages that haven't been through the configuration form,
+     * for example when they are imported.
+     * Implementations should use the same checks as their descriptor's form validation.
+     *
+     * @return {@link FormValidation#ok()} if so, or an error telling what is wrong.
+     */
+    public FormValidation check() {
+        if (overrideTime != null && overrideTime.getTime() < 0) {
+            return FormValidation.error("The display time must not be negative.");
+        }
+        if (refresh != null && refresh.getTtl() <= 0) {
+            return FormValidation.error("The refresh time must be positive.");
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * The kind of page, the simple name of its class.
+     * Used to tell which page is which in the remote API, and to say what kind of page to add through it.
+     *
+     * @return the type.
+     * @see SlideShow#doAddPage(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse, String)
+     */
+    @Exported
+    public String getType() {
+        return getClass().getSimpleName();
+    }
+
     /**
      * The URL to give to the browser when the page is displayed.
      *
@@ -123,14 +237,36 @@ public abstract class Page implements Describable<Page> {
      * the relative page/indexOf(this) will be returned.
      * @return the url for this page.
      */
+    @Exported
     public String getDisplayUrl() {
         String url = getFullDisplayUrl();
         if (url == null) {
-            url = "page/" + parent.getIndexOf(this);
+            url = "page/" + getIndex();
         }
         return url;
     }
 
+    /**
+     * The index of this page in its {@link #getParent() parent}.
+     * Set when the parent publishes its pages, so there is no need to search for it.
+     *
+     * @return the index.
+     */
+    @Exported
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * The index of this page in its {@link #getParent() parent}.
+     * Called by the SlideShow object when it publishes its pages.
+     *
+     * @param index the index.
+     */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * The {@link SlideShow} that this page belongs to.
      *
@@ -167,6 +303,15 @@ public abstract class Page implements Describable<Page> {
             return FormValidation.validateNonNegativeInteger(value);
         }
 
+        /**
+         * Form validation of the refresh time to live. Making sure that the user has set a positive integer.
+         * @param value the value to check.
+         * @return {@link hudson.util.FormValidation#ok()} if so.
+         */
+        public FormValidation doCheckTtl(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
         /**
          * All the PageDescriptors defined in the system.
          * @return the descriptors.
@@ -226,4 +371,49 @@ public abstract class Page implements Describable<Page> {
             this.time = time;
         }
     }
+
+    /**
+     * The optional block that lets a preloaded page stay loaded between the times it is shown.
+     * Only used by displays that keep all pages loaded.
+     *
+     * @see SlideShow#isPreload()
+     */
+    public static class Refresh {
+        int ttl;
+
+        /**
+         * Standard constructor.
+         *
+         * @param ttl the time (in seconds) a loaded page can be shown again without being reloaded.
+         */
+        @DataBoundConstructor
+        public Refresh(int ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * Default constructor.
+         * <strong>Do not use unless you are a serializer.</strong>
+         */
+        public Refresh() {
+        }
+
+        /**
+         * The time in seconds a loaded page can be shown again without being reloaded.
+         *
+         * @return the time to live.
+         */
+        public int getTtl() {
+            return ttl;
+        }
+
+        /**
+         * The time in seconds a loaded page can be shown again without being reloaded.
+         *
+         * @param ttl the time to live.
+         */
+        public void setTtl(int ttl) {
+            this.ttl = ttl;
+        }
+    }
 }
@@ -24,20 +24,43 @@
 
 package jenkins.plugins.slideshow.model;
 
+import hudson.Util;
+import hudson.model.Api;
+import hudson.model.Descriptor;
+import hudson.model.Failure;
 import hudson.model.Hudson;
+import hudson.util.FormValidation;
+import jenkins.plugins.slideshow.CachedContent;
+import jenkins.plugins.slideshow.Displays;
+import jenkins.plugins.slideshow.Messages;
 import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.SlideShowTicker;
 import jenkins.plugins.slideshow.SlideShows;
+import jenkins.plugins.slideshow.ViewIndex;
+import jenkins.plugins.slideshow.metrics.SlideShowMetrics;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.bind.JavaScriptMethod;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A instance of a Slide show.
@@ -45,6 +68,7 @@ import java.util.concurrent.TimeUnit;
  *
  * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
  */
+@ExportedBean
 public class SlideShow implements Serializable {
 
     /**
@@ -52,12 +76,58 @@ public class SlideShow implements Serializable {
      */
     public static final int DEFAULT_PAGE_TIME = 20;
 
+    /**
+     * How often (in milliseconds) a display playing in {@link Playback#PUSH} mode checks in with the ticker.
+     * In between it follows the schedule on its own from the manifest.
+     */
+    public static final long PUSH_RESYNC_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The response header of a push poll that tells how long (in milliseconds) until the show moves on.
+     */
+    public static final String REMAINING_HEADER = "X-Remaining-Ms";
+
+    /**
+     * How often (in milliseconds) a display playing in {@link Playback#SYNCHRONIZED} mode syncs its clock.
+     */
+    public static final long CLOCK_SYNC_MS = TimeUnit.HOURS.toMillis(1);
+    /**
+     * The Cache-Control header of the display script when it is asked for by its current version.
+     * The version is part of the URL, so the browser never has to ask again.
+     */
+    public static final String SCRIPT_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final String SHELL_RESOURCE = "SlideShow/shell.html";
+    private static final String SCRIPT_RESOURCE = "SlideShow/display.js";
+
+    private static volatile CachedContent script;
+
     private String name;
     private int defaultPageTime;
     private List<Page> pages;
     private boolean hideHeader;
     private boolean hideSidePanel;
     private boolean hideFooter;
+    private Playback playback;
+    private boolean preload;
+    private int unchangedPageTime;
+    private long epoch = System.currentTimeMillis();
+    /**
+     * Bumped by {@link #invalidate()}, cached content is tagged with the generation it was built from
+     * so that content built from an older configuration is never kept once a newer one is published.
+     */
+    private transient volatile long generation;
+    private transient volatile Rooted manifest;
+    private transient volatile Rooted shell;
+    private transient volatile PageResponses responses;
+    private transient volatile Versions versions;
+
+    /**
+     * The immutable array of pages that all reads go through.
+     * Replaced as a whole by {@link #publish(java.util.List)} whenever the pages change,
+     * so readers never see a half updated list.
+     */
+    private transient volatile Page[] snapshot;
 
     /**
      * Standard Constructor.
@@ -74,7 +144,7 @@ public class SlideShow implements Serializable {
                      List<Page> pages) {
         this.name = name;
         this.defaultPageTime = defaultPageTime;
-        this.pages = pages;
+        publish(pages);
         this.hideHeader = hideHeader;
         this.hideSidePanel = hideSidePanel;
         this.hideFooter = hideFooter;
@@ -90,7 +160,7 @@ public class SlideShow implements Serializable {
     public SlideShow(String name, int defaultPageTime, List<Page> pages) {
         this.name = name;
         this.defaultPageTime = defaultPageTime;
-        this.pages = pages;
+        publish(pages);
     }
 
     /**
@@ -101,7 +171,7 @@ public class SlideShow implements Serializable {
      */
     public SlideShow(String name, List<Page> pages) {
         this.name = name;
-        this.pages = pages;
+        publish(pages);
         this.defaultPageTime = DEFAULT_PAGE_TIME;
     }
 
@@ -114,7 +184,7 @@ public class SlideShow implements Serializable {
     public SlideShow(String name, int defaultPageTime) {
         this.name = name;
         this.defaultPageTime = defaultPageTime;
-        this.pages = new LinkedList<Page>();
+        publish(new LinkedList<Page>());
     }
 
     /**
@@ -129,6 +199,7 @@ public class SlideShow implements Serializable {
      *
      * @return the name
      */
+    @Exported
     public String getName() {
         return name;
     }
@@ -140,6 +211,7 @@ public class SlideShow implements Serializable {
      */
     public void setName(String name) {
         this.name = name;
+        invalidate();
     }
 
     /**
@@ -147,6 +219,7 @@ public class SlideShow implements Serializable {
      *
      * @return the page display time
      */
+    @Exported
     public int getDefaultPageTime() {
         return defaultPageTime;
     }
@@ -158,15 +231,80 @@ public class SlideShow implements Serializable {
      */
     public void setDefaultPageTime(int defaultPageTime) {
         this.defaultPageTime = defaultPageTime;
+        invalidate();
     }
 
     /**
-     * A direct reference to the list of pages.
+     * The current pages.
+     * The list is an unmodifiable view of the current snapshot, use {@link #setPages(java.util.List)}
+     * or {@link #addPage(Page)} to change it.
      *
      * @return the pages.
      */
+    @Exported
     public List<Page> getPages() {
-        return pages;
+        return Collections.unmodifiableList(Arrays.asList(getSnapshot()));
+    }
+
+    /**
+     * The current immutable snapshot of the pages.
+     * <strong>Do not modify the returned array.</strong>
+     *
+     * @return the pages.
+     */
+    Page[] getSnapshot() {
+        Page[] current = snapshot;
+        if (current == null) {
+            publish(pages);
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Makes the given pages the current ones in one atomic step.
+     * Each page gets its parent and index set before the new snapshot becomes visible to readers.
+     * A page that already has a parent, and so may be in a snapshot someone is reading,
+     * is copied rather than changed if it would get another parent or index.
+     *
+     * @param list the new pages, may be null.
+     */
+    private synchronized void publish(List<Page> list) {
+        Page[] array;
+        if (list == null) {
+            array = new Page[0];
+        } else {
+            array = list.toArray(new Page[list.size()]);
+        }
+        for (int i = 0; i < array.length; i++) {
+            Page page = array[i];
+            if (page.getParent() != this || page.getIndex() != i) {
+                if (page.getParent() != null) {
+                    page = page.copy();
+                }
+                page.setParent(this);
+                page.setIndex(i);
+                array[i] = page;
+            }
+        }
+        this.pages = new ArrayList<Page>(Arrays.asList(array));
+        this.snapshot = array;
+        invalidate();
+        ViewIndex.showing(this);
+    }
+
+    /**
+     * Called by XStream after the show is loaded from disk, publishes the loaded pages.
+     * Shows saved before they had an epoch get one now, since XStream doesn't run the field initializers.
+     *
+     * @return this object.
+     */
+    private Object readResolve() {
+        if (epoch == 0) {
+            epoch = System.currentTimeMillis();
+        }
+        publish(pages);
+        return this;
     }
 
     /**
@@ -174,6 +312,7 @@ public class SlideShow implements Serializable {
      *
      * @return true if so.
      */
+    @Exported
     public boolean isHideHeader() {
         return hideHeader;
     }
@@ -192,6 +331,7 @@ public class SlideShow implements Serializable {
      *
      * @return true if so.
      */
+    @Exported
     public boolean isHideSidePanel() {
         return hideSidePanel;
     }
@@ -210,6 +350,7 @@ public class SlideShow implements Serializable {
      *
      * @return true if so.
      */
+    @Exported
     public boolean isHideFooter() {
         return hideFooter;
     }
@@ -223,6 +364,92 @@ public class SlideShow implements Serializable {
         this.hideFooter = hideFooter;
     }
 
+    /**
+     * How the displays decide when to move to the next page.
+     *
+     * @return the playback mode, {@link Playback#LOCAL} if nothing is set.
+     */
+    public Playback getPlayback() {
+        if (playback == null) {
+            return Playback.LOCAL;
+        }
+        return playback;
+    }
+
+    /**
+     * The name of the {@link #getPlayback() playback mode}, for the remote API.
+     *
+     * @return the name.
+     */
+    @Exported(name = "playback")
+    public String getPlaybackName() {
+        return getPlayback().name();
+    }
+
+    /**
+     * How the displays decide when to move to the next page.
+     *
+     * @param playback the playback mode.
+     */
+    public void setPlayback(Playback playback) {
+        this.playback = playback;
+        invalidate();
+    }
+
+    /**
+     * If displays should keep one loaded frame per page, load the next page in the background before it is shown
+     * and only reload a page when its {@link Page#getRefresh() refresh} time has passed.
+     * Only used with {@link Playback#LOCAL} playback.
+     *
+     * @return true if so.
+     */
+    @Exported
+    public boolean isPreload() {
+        return preload;
+    }
+
+    /**
+     * If displays should keep one loaded frame per page.
+     *
+     * @param preload true if so.
+     * @see #isPreload()
+     */
+    public void setPreload(boolean preload) {
+        this.preload = preload;
+        invalidate();
+    }
+
+    /**
+     * How long (in seconds) to show a page that hasn't changed since the display last showed it,
+     * or 0 to always show pages for their full time.
+     *
+     * @return the time in seconds.
+     * @see Page#getContentVersion()
+     */
+    @Exported
+    public int getUnchangedPageTime() {
+        return unchangedPageTime;
+    }
+
+    /**
+     * How long (in seconds) to show a page that hasn't changed since the display last showed it.
+     *
+     * @param unchangedPageTime the time in seconds, or 0 to disable.
+     */
+    public void setUnchangedPageTime(int unchangedPageTime) {
+        this.unchangedPageTime = unchangedPageTime;
+        invalidate();
+    }
+
+    /**
+     * All available playback modes for the configuration page.
+     *
+     * @return the modes.
+     */
+    public Playback[] getPlaybackModes() {
+        return Playback.values();
+    }
+
     /**
      * Sets the list of pages.
      * All Pages will get their {@link jenkins.plugins.slideshow.model.Page#getParent() parent}
@@ -231,10 +458,8 @@ public class SlideShow implements Serializable {
      * @param pages the pages.
      */
     public void setPages(List<Page> pages) {
-        this.pages = pages;
-        for (Page p : pages) {
-            p.setParent(this);
-        }
+        epoch = System.currentTimeMillis();
+        publish(pages);
     }
 
     /**
@@ -243,12 +468,38 @@ public class SlideShow implements Serializable {
      *
      * @param page the page to add.
      */
-    public void addPage(Page page) {
-        if (this.pages == null) {
-            this.pages = new LinkedList<Page>();
+    public synchronized void addPage(Page page) {
+        List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+        list.add(page);
+        epoch = System.currentTimeMillis();
+        publish(list);
+    }
+
+    /**
+     * Points the view pages showing the view with the given URL at the view's new URL.
+     * The pages are copied and published as a new snapshot, the pages in the current one are left as they are.
+     *
+     * @param viewUrl the URL the view had.
+     * @param view    the view as it is now.
+     * @return true if any page was changed.
+     * @see ViewIndex
+     */
+    public synchronized boolean replaceView(String viewUrl, ViewPage.ViewPojo view) {
+        List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+        boolean changed = false;
+        for (int i = 0; i < list.size(); i++) {
+            Page page = list.get(i);
+            if (page instanceof ViewPage && viewUrl.equals(((ViewPage)page).getViewUrl())) {
+                ViewPage copy = (ViewPage)page.copy();
+                copy.setView(view);
+                list.set(i, copy);
+                changed = true;
+            }
+        }
+        if (changed) {
+            publish(list);
         }
-        pages.add(page);
-        page.setParent(this);
+        return changed;
     }
 
     /**
@@ -256,10 +507,14 @@ public class SlideShow implements Serializable {
      * Can be used to direct stapler to the correct instance.
      *
      * @param index the index of the page.
-     * @return the Page.
+     * @return the Page, or null if there is no page at that index.
      */
     public Page getPage(int index) {
-        return pages.get(index);
+        Page[] current = getSnapshot();
+        if (index < 0 || index >= current.length) {
+            return null;
+        }
+        return current[index];
     }
 
     /**
@@ -267,13 +522,15 @@ public class SlideShow implements Serializable {
      *
      * @param page the page.
      * @return the index
-     * @see List#indexOf(Object)
+     * @see Page#getIndex()
      */
     public int getIndexOf(Page page) {
-        if (pages == null) {
-            return -1;
+        Page[] current = getSnapshot();
+        int index = page.getIndex();
+        if (index >= 0 && index < current.length && current[index] == page) {
+            return index;
         }
-        return pages.indexOf(page);
+        return -1;
     }
 
     /**
@@ -283,9 +540,10 @@ public class SlideShow implements Serializable {
      * @return the index of the next page in the chain, or -1 if there are no pages.
      */
     public int getNextIndex(int currentIndex) {
-        if (pages == null || pages.size() <= 0) {
+        int size = getSnapshot().length;
+        if (size <= 0) {
             return -1;
-        } else if (currentIndex < 0 || currentIndex >= pages.size() - 1) {
+        } else if (currentIndex < 0 || currentIndex >= size - 1) {
             return 0;
         } else {
             return currentIndex + 1;
@@ -301,12 +559,426 @@ public class SlideShow implements Serializable {
      */
     @JavaScriptMethod
     public PagePojo getNextPage(int currentIndex) {
-        int nextIndex = getNextIndex(currentIndex);
-        if (nextIndex < 0) {
+        long start = System.nanoTime();
+        PagePojo page = getPagePojo(getNextIndex(currentIndex));
+        SlideShowMetrics.getInstance().pageRequested(name, start);
+        return page;
+    }
+
+    /**
+     * Gets the data for the page at the specified index.
+     *
+     * @param index the index of the page.
+     * @return the page data, or null if there is no page at that index.
+     */
+    public PagePojo getPagePojo(int index) {
+        Page page = getPage(index);
+        if (page == null) {
+            return null;
+        }
+        return new PagePojo(page.getDisplayUrl(), index, page.getSpecifiedTime(),
+                page.getContentVersion(), getUnchangedPageTime());
+    }
+
+    /**
+     * The serialized {@link PagePojo} of the page at the specified index.
+     * The bytes are built once and then reused until the show is reconfigured,
+     * the root URL changes or the content version of the page changes.
+     *
+     * @param index the index of the page.
+     * @return the JSON of the page data, or null if there is no page at that index.
+     * @see #getPagePojo(int)
+     */
+    public CachedContent getPageResponse(int index) {
+        long built = generation;
+        Page[] pages = getSnapshot();
+        if (index < 0 || index >= pages.length) {
             return null;
         }
-        Page page = pages.get(nextIndex);
-        return new PagePojo(page.getDisplayUrl(), nextIndex, page.getSpecifiedTime());
+        Page page = pages[index];
+        String rootUrl = PluginImpl.getRootUrl();
+        PageResponses current = responses;
+        if (current == null || !current.isFor(rootUrl, built)) {
+            current = new PageResponses(rootUrl, built, pages.length);
+            responses = current;
+        }
+        long version = page.getContentVersion();
+        PageResponse response = current.get(index);
+        if (response == null || response.version != version) {
+            PagePojo pojo = new PagePojo(page.getDisplayUrl(), index, page.getSpecifiedTime(),
+                    version, getUnchangedPageTime());
+            response = new PageResponse(version,
+                    CachedContent.fromText("application/json", JSONObject.fromObject(pojo).toString()));
+            current.set(index, response);
+        }
+        return response.content;
+    }
+
+    /**
+     * Serves the data of the page at the specified index as pre-serialized JSON.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param index    the index of the page.
+     * @throws IOException if so.
+     * @see #getPageResponse(int)
+     */
+    public void doPageData(StaplerRequest request, StaplerResponse response,
+                           @QueryParameter int index) throws IOException {
+        long start = System.nanoTime();
+        Displays.getInstance().heartbeat(request, this, index);
+        CachedContent content = getPageResponse(index);
+        if (content == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        content.serve(request, response);
+        SlideShowMetrics.getInstance().pageRequested(name, start);
+    }
+
+    /**
+     * Serves the data of the page after the specified index as pre-serialized JSON,
+     * the same as {@link #getNextPage(int)} but without serializing it again for every display.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param index    the index of the page the display is currently showing, or -1 to start from the beginning.
+     * @throws IOException if so.
+     */
+    public void doNextPageData(StaplerRequest request, StaplerResponse response,
+                               @QueryParameter int index) throws IOException {
+        long start = System.nanoTime();
+        int next = getNextIndex(index);
+        Displays.getInstance().heartbeat(request, this, next);
+        CachedContent content = getPageResponse(next);
+        if (content == null) {
+            response.setStatus(StaplerResponse.SC_NO_CONTENT);
+            return;
+        }
+        content.serve(request, response);
+        SlideShowMetrics.getInstance().pageRequested(name, start);
+    }
+
+    /**
+     * Serves the play list of the show: every page's display URL, index and display time in one JSON document.
+     * The document carries a strong ETag so displays can revalidate it with a conditional GET
+     * and get a 304 until the show is reconfigured.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doManifest(StaplerRequest request, StaplerResponse response) throws IOException {
+        Displays.getInstance().heartbeat(request, this, -1);
+        getManifest().serve(request, response);
+    }
+
+    /**
+     * Serves the current content version of every page, so that displays can tell which of their loaded pages
+     * can be shown again without reloading.
+     * This changes with the builds, unlike the manifest, so it is kept out of it.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     * @see Page#getContentVersion()
+     */
+    public void doVersions(StaplerRequest request, StaplerResponse response) throws IOException {
+        Displays.getInstance().heartbeat(request, this, -1);
+        getVersions().serve(request, response);
+    }
+
+    /**
+     * The cached content versions of the pages, rebuilt when any of them has changed since it was built.
+     *
+     * @return the versions.
+     * @see #doVersions(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse)
+     */
+    public CachedContent getVersions() {
+        Page[] current = getSnapshot();
+        long[] values = new long[current.length];
+        for (int i = 0; i < current.length; i++) {
+            values[i] = current[i].getContentVersion();
+        }
+        Versions cached = versions;
+        if (cached == null || !Arrays.equals(cached.values, values)) {
+            JSONArray array = new JSONArray();
+            for (long value : values) {
+                array.add(value);
+            }
+            JSONObject json = new JSONObject();
+            json.put("versions", array);
+            cached = new Versions(values, CachedContent.fromText("application/json", json.toString()));
+            versions = cached;
+        }
+        return cached.content;
+    }
+
+    /**
+     * The cached manifest, rebuilt if the show has changed or the root URL is different since it was built.
+     *
+     * @return the manifest.
+     * @see #doManifest(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse)
+     */
+    public CachedContent getManifest() {
+        long built = generation;
+        String rootUrl = PluginImpl.getRootUrl();
+        Rooted current = manifest;
+        if (current == null || !current.isFor(rootUrl, built)) {
+            current = new Rooted(rootUrl, built,
+                    CachedContent.fromText("application/json", buildManifest().toString()));
+            manifest = current;
+        }
+        return current.content;
+    }
+
+    /**
+     * Builds the JSON play list.
+     * Each page carries the time into the cycle at which it starts, so that displays in
+     * {@link Playback#SYNCHRONIZED} mode can work out the current page from the {@link #getEpoch() epoch}
+     * and the time of day alone.
+     *
+     * @return the manifest document.
+     */
+    protected JSONObject buildManifest() {
+        JSONArray array = new JSONArray();
+        boolean versioned = false;
+        long startMs = 0;
+        for (Page page : getSnapshot()) {
+            long timeoutMs = TimeUnit.SECONDS.toMillis(page.getSpecifiedTime());
+            JSONObject json = new JSONObject();
+            json.put("url", page.getDisplayUrl());
+            json.put("index", page.getIndex());
+            json.put("timeoutMs", timeoutMs);
+            json.put("startMs", startMs);
+            json.put("refreshMs", page.getRefreshMs());
+            array.add(json);
+            startMs += timeoutMs;
+            versioned = versioned || page.getContentVersion() >= 0;
+        }
+        JSONObject json = new JSONObject();
+        json.put("pages", array);
+        json.put("epoch", epoch);
+        json.put("cycleMs", startMs);
+        json.put("versioned", versioned);
+        json.put("unchangedTimeoutMs", TimeUnit.SECONDS.toMillis(getUnchangedPageTime()));
+        return json;
+    }
+
+    /**
+     * Drops everything that is cached from the show's configuration.
+     * Must be called whenever the show or its pages change.
+     * Content that is being built from the previous configuration while this is called
+     * has an older generation and is not used again.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        manifest = null;
+        shell = null;
+        responses = null;
+    }
+
+    /**
+     * Serves the page a display opens: a small html shell that only points at the versioned display script
+     * and carries the show's settings.
+     * The shell is built once per configuration and revalidated with its ETag,
+     * so a display that reloads gets a 304 instead of a rendered page.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doIndex(StaplerRequest request, StaplerResponse response) throws IOException {
+        getShell().serve(request, response);
+    }
+
+    /**
+     * The cached html shell, rebuilt if the show has changed or the root URL is different since it was built.
+     *
+     * @return the shell.
+     * @throws IOException if the shell or the script can't be read.
+     * @see #doIndex(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse)
+     */
+    public CachedContent getShell() throws IOException {
+        long built = generation;
+        String rootUrl = PluginImpl.getRootUrl();
+        Rooted current = shell;
+        if (current == null || !current.isFor(rootUrl, built)) {
+            JSONObject settings = new JSONObject();
+            settings.put("viewUrl", getViewUrl());
+            settings.put("playback", getPlayback().name());
+            settings.put("preload", preload);
+            settings.put("heartbeatMs", getHeartbeatMs());
+            settings.put("pushResyncMs", getPushResyncMs());
+            settings.put("pushMinPageMs", SlideShowTicker.MIN_PAGE_MS);
+            settings.put("clockSyncMs", getClockSyncMs());
+            String html = CachedContent.readResource(SlideShow.class, SHELL_RESOURCE)
+                    .replace("@TITLE@", Util.escape(name))
+                    .replace("@SETTINGS@", settings.toString().replace("</", "<\\/"))
+                    .replace("@SCRIPT@", Util.escape(getScriptUrl()));
+            current = new Rooted(rootUrl, built, CachedContent.fromText("text/html", html));
+            shell = current;
+        }
+        return current.content;
+    }
+
+    /**
+     * The URL of the display script, versioned by the script's content.
+     *
+     * @return the URL.
+     * @throws IOException if the script can't be read.
+     */
+    public String getScriptUrl() throws IOException {
+        return getViewUrl() + "/script?v=" + getScriptVersion();
+    }
+
+    /**
+     * Serves the display script.
+     * When it is asked for by its current version it may be cached for good,
+     * any other version is served with a revalidation requirement
+     * so that an old shell never pins the wrong script in the browser's cache.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param v        the version the shell asked for.
+     * @throws IOException if so.
+     */
+    public void doScript(StaplerRequest request, StaplerResponse response,
+                         @QueryParameter String v) throws IOException {
+        if (getScriptVersion().equals(v)) {
+            getScript().serve(request, response, SCRIPT_CACHE_CONTROL);
+        } else {
+            getScript().serve(request, response);
+        }
+    }
+
+    /**
+     * The version of the display script, a digest of its content.
+     *
+     * @return the version.
+     * @throws IOException if the script can't be read.
+     */
+    private static String getScriptVersion() throws IOException {
+        String etag = getScript().getEtag();
+        return etag.substring(1, etag.length() - 1);
+    }
+
+    /**
+     * The display script, read once from the plugin's resources.
+     * It is the same for all shows.
+     *
+     * @return the script.
+     * @throws IOException if it can't be read.
+     */
+    private static CachedContent getScript() throws IOException {
+        CachedContent current = script;
+        if (current == null) {
+            current = CachedContent.fromResource(SlideShow.class, SCRIPT_RESOURCE, "text/javascript");
+            script = current;
+        }
+        return current;
+    }
+
+    /**
+     * Convenience method for easier Jelly access to the constant {@link #PUSH_RESYNC_MS}.
+     *
+     * @return how often a push display checks in.
+     */
+    public long getPushResyncMs() {
+        return PUSH_RESYNC_MS;
+    }
+
+    /**
+     * Check-in for displays playing the show in {@link Playback#PUSH} mode.
+     * Answers at once with the page the shared {@link SlideShowTicker} is currently showing
+     * and, in the {@link #REMAINING_HEADER} header, how long until it moves on.
+     * The display schedules the following pages on its own from the manifest, correcting the remaining time
+     * by half the round trip, and only checks in again every {@link #PUSH_RESYNC_MS}.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param index    the index of the page the display is currently showing, or -1.
+     * @throws IOException if so.
+     */
+    public void doPoll(StaplerRequest request, StaplerResponse response,
+                       @QueryParameter int index) throws IOException {
+        Displays.getInstance().heartbeat(request, this, index);
+        SlideShowTicker.Current current = SlideShowTicker.getInstance().join(this).current();
+        long start = System.nanoTime();
+        response.setHeader("Cache-Control", "no-cache");
+        CachedContent content = null;
+        if (current != null) {
+            content = getPageResponse(current.getIndex());
+        }
+        if (content == null) {
+            response.setStatus(StaplerResponse.SC_NO_CONTENT);
+            return;
+        }
+        response.setHeader(REMAINING_HEADER, String.valueOf(current.getRemainingMs()));
+        response.setContentType(content.getContentType());
+        response.setContentLength(content.getContent().length);
+        response.getOutputStream().write(content.getContent());
+        SlideShowMetrics.getInstance().pageRequested(name, start);
+    }
+
+    /**
+     * Serves the current server time, for displays playing in {@link Playback#SYNCHRONIZED} mode
+     * to correct their clocks with.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doClock(StaplerRequest request, StaplerResponse response) throws IOException {
+        Displays.getInstance().heartbeat(request, this, -1);
+        JSONObject json = new JSONObject();
+        json.put("now", System.currentTimeMillis());
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write(json.toString());
+    }
+
+    /**
+     * The time (in milliseconds) at which the current pages started their first cycle.
+     * Displays in {@link Playback#SYNCHRONIZED} mode count their cycles from it.
+     *
+     * @return the epoch.
+     */
+    @Exported
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Convenience method for easier Jelly access to the constant {@link #CLOCK_SYNC_MS}.
+     *
+     * @return how often a synchronized display syncs its clock.
+     */
+    public long getClockSyncMs() {
+        return CLOCK_SYNC_MS;
+    }
+
+    /**
+     * Heartbeat from a display that hasn't had anything else to ask for in a while.
+     * The display sends its client id and the index of the page it shows.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @see Displays
+     */
+    public void doHeartbeat(StaplerRequest request, StaplerResponse response) {
+        Displays.getInstance().heartbeat(request, this, -1);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setStatus(StaplerResponse.SC_NO_CONTENT);
+    }
+
+    /**
+     * Convenience method for easier Jelly access to the constant {@link Displays#HEARTBEAT_MS}.
+     *
+     * @return how often a display sends a heartbeat.
+     */
+    public long getHeartbeatMs() {
+        return Displays.HEARTBEAT_MS;
     }
 
     /**
@@ -317,11 +989,10 @@ public class SlideShow implements Serializable {
      */
     @JavaScriptMethod
     public PagePojo getFirstPage() {
-        if (pages == null || pages.isEmpty()) {
-            return null;
-        }
-        Page page = pages.get(0);
-        return new PagePojo(page.getDisplayUrl(), 0, page.getSpecifiedTime());
+        long start = System.nanoTime();
+        PagePojo page = getPagePojo(0);
+        SlideShowMetrics.getInstance().pageRequested(name, start);
+        return page;
     }
 
     /**
@@ -345,6 +1016,9 @@ public class SlideShow implements Serializable {
 
     /**
      * For submission handling for the configuration page.
+     * The new pages are bound on the side and published together in one step,
+     * so displays reading the show meanwhile never see a half bound list.
+     * If the name was changed the show is renamed, unless another show has the new name.
      *
      * @param request  the request
      * @param response the response
@@ -355,11 +1029,427 @@ public class SlideShow implements Serializable {
 
         Hudson.getInstance().checkPermission(PluginImpl.CONFIGURE);
 
-        request.bindJSON(this, request.getSubmittedForm());
-        PluginImpl.getInstance().save();
+        JSONObject form = request.getSubmittedForm();
+        String newName = Util.fixEmptyAndTrim(form.optString("name"));
+        if (newName == null) {
+            newName = name;
+        }
+        PluginImpl plugin = PluginImpl.getInstance();
+        if (!newName.equalsIgnoreCase(name) && plugin.hasShow(newName)) {
+            throw new Failure("The name " + newName + " is taken.");
+        }
+        List<Page> newPages = request.bindJSONToList(Page.class, form.get("pages"));
+        int newDefaultPageTime = form.getInt("defaultPageTime");
+        Playback newPlayback = getPlayback();
+        if (form.has("playback")) {
+            newPlayback = Playback.valueOf(form.getString("playback"));
+        }
+        synchronized (this) {
+            defaultPageTime = newDefaultPageTime;
+            hideHeader = form.optBoolean("hideHeader");
+            hideSidePanel = form.optBoolean("hideSidePanel");
+            hideFooter = form.optBoolean("hideFooter");
+            playback = newPlayback;
+            preload = form.optBoolean("preload");
+            unchangedPageTime = form.optInt("unchangedPageTime");
+            epoch = System.currentTimeMillis();
+            publish(newPages);
+        }
+        SlideShowTicker.getInstance().restart(this);
+        if (newName.equals(name)) {
+            plugin.save(this);
+        } else {
+            try {
+                plugin.renameShow(this, newName);
+            } catch (IllegalArgumentException e) {
+                plugin.save(this);
+                throw new Failure(e.getMessage());
+            }
+        }
+        response.sendRedirect2(SlideShows.getInstance().getFullUrl());
+    }
+
+    /**
+     * Deletes the show.
+     * Only accepts POST, so that following a link can't delete a show.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     * @see PluginImpl#removeShow(SlideShow)
+     */
+    public void doDoDelete(StaplerRequest request, StaplerResponse response) throws IOException {
+        Hudson.getInstance().checkPermission(PluginImpl.DELETE);
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(StaplerResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+        PluginImpl.getInstance().removeShow(this);
         response.sendRedirect2(SlideShows.getInstance().getFullUrl());
     }
 
+    /**
+     * The remote API of the show.
+     *
+     * @return the API.
+     */
+    public Api getApi() {
+        Hudson.getInstance().checkPermission(PluginImpl.LIST);
+        return new Api(this);
+    }
+
+    /**
+     * Changes some of the show's own settings from a posted JSON object, leaving the pages alone.
+     * Only the given keys are changed:
+     * <code>defaultPageTime</code>, <code>unchangedPageTime</code>, <code>playback</code>,
+     * <code>preload</code>, <code>hideHeader</code>, <code>hideSidePanel</code> and <code>hideFooter</code>.
+     * Everything is checked before anything is changed, and only this show is saved.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doPatch(StaplerRequest request, StaplerResponse response) throws IOException {
+        JSONObject json = readWrite(request, response);
+        if (json == null) {
+            return;
+        }
+        Playback newPlayback = getPlayback();
+        int newDefaultPageTime = defaultPageTime;
+        int newUnchangedPageTime = unchangedPageTime;
+        try {
+            if (json.has("playback")) {
+                newPlayback = Playback.valueOf(json.getString("playback"));
+            }
+            if (json.has("defaultPageTime")) {
+                newDefaultPageTime = json.getInt("defaultPageTime");
+            }
+            if (json.has("unchangedPageTime")) {
+                newUnchangedPageTime = json.getInt("unchangedPageTime");
+            }
+        } catch (JSONException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Unknown playback " + json.get("playback"));
+            return;
+        }
+        if (newDefaultPageTime < 0 || newUnchangedPageTime < 0) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Times must not be negative.");
+            return;
+        }
+        boolean retimed;
+        synchronized (this) {
+            retimed = newDefaultPageTime != defaultPageTime;
+            if (retimed) {
+                epoch = System.currentTimeMillis();
+            }
+            playback = newPlayback;
+            defaultPageTime = newDefaultPageTime;
+            unchangedPageTime = newUnchangedPageTime;
+            preload = json.optBoolean("preload", preload);
+            hideHeader = json.optBoolean("hideHeader", hideHeader);
+            hideSidePanel = json.optBoolean("hideSidePanel", hideSidePanel);
+            hideFooter = json.optBoolean("hideFooter", hideFooter);
+            invalidate();
+        }
+        if (retimed) {
+            SlideShowTicker.getInstance().restart(this);
+        }
+        saved(response);
+    }
+
+    /**
+     * Adds one page from a posted JSON object.
+     * The object has the page's <code>type</code>, as in the remote API,
+     * and the same fields as the page's configuration form, for example
+     * <code>{"type":"UrlPage","url":"http://example.com","overrideTime":{"time":30}}</code>.
+     * Only the new page is checked, and only this show is saved.
+     * Answers with the index of the new page as <code>{"index":n}</code>.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param index    where to put the page, or null to add it last.
+     * @throws IOException if so.
+     * @see Page#check()
+     */
+    public void doAddPage(StaplerRequest request, StaplerResponse response,
+                          @QueryParameter String index) throws IOException {
+        JSONObject json = readWrite(request, response);
+        if (json == null) {
+            return;
+        }
+        Page page = bindPage(request, response, json);
+        if (page == null) {
+            return;
+        }
+        int position;
+        synchronized (this) {
+            List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+            position = list.size();
+            if (index != null && index.length() > 0) {
+                try {
+                    position = Integer.parseInt(index);
+                } catch (NumberFormatException e) {
+                    position = -1;
+                }
+            }
+            if (position < 0 || position > list.size()) {
+                response.sendError(StaplerResponse.SC_BAD_REQUEST, "No position " + index);
+                return;
+            }
+            list.add(position, page);
+            epoch = System.currentTimeMillis();
+            publish(list);
+        }
+        SlideShowTicker.getInstance().restart(this);
+        PluginImpl.getInstance().save(this);
+        JSONObject answer = new JSONObject();
+        answer.put("index", position);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType("application/json;charset=" + CachedContent.ENCODING);
+        response.getWriter().write(answer.toString());
+    }
+
+    /**
+     * Changes one page from a posted JSON object.
+     * If the object has a <code>type</code> the page is replaced with a new one, bound the same way as in
+     * {@link #doAddPage(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse, String)}.
+     * Otherwise only the given keys are changed: <code>time</code> and <code>ttl</code>,
+     * in seconds or null to use the show's default and to not keep the page loaded.
+     * Only the changed page is checked, and only this show is saved.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param index    the index of the page.
+     * @throws IOException if so.
+     */
+    public void doPatchPage(StaplerRequest request, StaplerResponse response,
+                            @QueryParameter int index) throws IOException {
+        JSONObject json = readWrite(request, response);
+        if (json == null) {
+            return;
+        }
+        if (getPage(index) == null) {
+            response.sendError(StaplerResponse.SC_NOT_FOUND, "No page " + index);
+            return;
+        }
+        if (json.has("type")) {
+            Page page = bindPage(request, response, json);
+            if (page == null) {
+                return;
+            }
+            synchronized (this) {
+                List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+                if (index >= list.size()) {
+                    response.sendError(StaplerResponse.SC_NOT_FOUND, "No page " + index);
+                    return;
+                }
+                list.set(index, page);
+                epoch = System.currentTimeMillis();
+                publish(list);
+            }
+            SlideShowTicker.getInstance().restart(this);
+            saved(response);
+            return;
+        }
+        Page.Time time = null;
+        Page.Refresh refresh = null;
+        try {
+            if (json.has("time") && !JSONNull.getInstance().equals(json.get("time"))) {
+                time = new Page.Time(json.getInt("time"));
+                if (time.getTime() < 0) {
+                    response.sendError(StaplerResponse.SC_BAD_REQUEST, "The time must not be negative.");
+                    return;
+                }
+            }
+            if (json.has("ttl") && !JSONNull.getInstance().equals(json.get("ttl"))) {
+                refresh = new Page.Refresh(json.getInt("ttl"));
+                if (refresh.getTtl() <= 0) {
+                    response.sendError(StaplerResponse.SC_BAD_REQUEST, "The ttl must be positive.");
+                    return;
+                }
+            }
+        } catch (JSONException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+            if (index >= list.size()) {
+                response.sendError(StaplerResponse.SC_NOT_FOUND, "No page " + index);
+                return;
+            }
+            Page page = list.get(index).copy();
+            if (json.has("time")) {
+                page.setOverrideTime(time);
+                epoch = System.currentTimeMillis();
+            }
+            if (json.has("ttl")) {
+                page.setRefresh(refresh);
+            }
+            list.set(index, page);
+            publish(list);
+        }
+        if (json.has("time")) {
+            SlideShowTicker.getInstance().restart(this);
+        }
+        saved(response);
+    }
+
+    /**
+     * Removes one page. Must be posted.
+     * Only this show is saved.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param index    the index of the page.
+     * @throws IOException if so.
+     */
+    public void doDeletePage(StaplerRequest request, StaplerResponse response,
+                             @QueryParameter int index) throws IOException {
+        if (!checkWrite(request, response)) {
+            return;
+        }
+        synchronized (this) {
+            List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+            if (index < 0 || index >= list.size()) {
+                response.sendError(StaplerResponse.SC_NOT_FOUND, "No page " + index);
+                return;
+            }
+            list.remove(index);
+            epoch = System.currentTimeMillis();
+            publish(list);
+        }
+        SlideShowTicker.getInstance().restart(this);
+        saved(response);
+    }
+
+    /**
+     * Moves one page to another position, the pages in between move one step. Must be posted.
+     * Only this show is saved.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param from     the index of the page.
+     * @param to       the index the page should have afterwards.
+     * @throws IOException if so.
+     */
+    public void doMovePage(StaplerRequest request, StaplerResponse response,
+                           @QueryParameter int from, @QueryParameter int to) throws IOException {
+        if (!checkWrite(request, response)) {
+            return;
+        }
+        synchronized (this) {
+            List<Page> list = new ArrayList<Page>(Arrays.asList(getSnapshot()));
+            if (from < 0 || from >= list.size() || to < 0 || to >= list.size()) {
+                response.sendError(StaplerResponse.SC_NOT_FOUND, "No page " + from + " or " + to);
+                return;
+            }
+            list.add(to, list.remove(from));
+            epoch = System.currentTimeMillis();
+            publish(list);
+        }
+        SlideShowTicker.getInstance().restart(this);
+        saved(response);
+    }
+
+    /**
+     * Checks that the request may change the show: it has to be posted by someone with
+     * {@link PluginImpl#CONFIGURE} permission.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @return true if so, if not the error has been sent.
+     * @throws IOException if so.
+     */
+    private static boolean checkWrite(StaplerRequest request, StaplerResponse response) throws IOException {
+        Hudson.getInstance().checkPermission(PluginImpl.CONFIGURE);
+        if (!"POST".equals(request.getMethod())) {
+            response.sendError(StaplerResponse.SC_METHOD_NOT_ALLOWED);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@link #checkWrite(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse) Checks}
+     * the request and reads the posted JSON object.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @return the object, or null if the request isn't allowed or isn't a JSON object and the error has been sent.
+     * @throws IOException if so.
+     */
+    private static JSONObject readWrite(StaplerRequest request, StaplerResponse response) throws IOException {
+        if (!checkWrite(request, response)) {
+            return null;
+        }
+        try {
+            return JSONObject.fromObject(IOUtils.toString(request.getInputStream(), CachedContent.ENCODING));
+        } catch (JSONException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Not a JSON object: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Binds a page from its JSON, as described in
+     * {@link #doAddPage(org.kohsuke.stapler.StaplerRequest, org.kohsuke.stapler.StaplerResponse, String)},
+     * and checks it.
+     * Only the page types that are registered as {@link Page.PageDescriptor}s can be bound.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @param json     the page.
+     * @return the page, or null if it isn't valid and the error has been sent.
+     * @throws IOException if so.
+     */
+    private static Page bindPage(StaplerRequest request, StaplerResponse response,
+                                 JSONObject json) throws IOException {
+        String type = json.optString("type");
+        Descriptor<Page> descriptor = null;
+        Iterator<Descriptor<Page>> descriptors = Page.PageDescriptor.getAllPageDescriptors();
+        while (descriptor == null && descriptors.hasNext()) {
+            Descriptor<Page> d = descriptors.next();
+            if (d.clazz.getSimpleName().equals(type) || d.clazz.getName().equals(type)) {
+                descriptor = d;
+            }
+        }
+        if (descriptor == null) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Unknown page type " + type);
+            return null;
+        }
+        JSONObject form = JSONObject.fromObject(json);
+        form.remove("type");
+        form.put("stapler-class", descriptor.clazz.getName());
+        Page page;
+        try {
+            page = request.bindJSON(Page.class, form);
+        } catch (RuntimeException e) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, "Could not bind the page: " + e.getMessage());
+            return null;
+        }
+        FormValidation validation = page.check();
+        if (validation.kind == FormValidation.Kind.ERROR) {
+            response.sendError(StaplerResponse.SC_BAD_REQUEST, validation.getMessage());
+            return null;
+        }
+        return page;
+    }
+
+    /**
+     * Saves only this show after a change through the remote API and answers with 204 No Content.
+     *
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    private void saved(StaplerResponse response) throws IOException {
+        PluginImpl.getInstance().save(this);
+        response.setHeader("Cache-Control", "no-cache");
+        response.setStatus(StaplerResponse.SC_NO_CONTENT);
+    }
+
     /**
      * The URL to the slide show's configuration page.
      * Used by Jelly to show a link to it.
@@ -380,6 +1470,185 @@ public class SlideShow implements Serializable {
         return SlideShows.getInstance().getFullUrl() + "/show/" + getName();
     }
 
+    /**
+     * Cached content built from the show, such as the manifest or the shell,
+     * together with the root URL and the generation of the show it was built for.
+     */
+    private static final class Rooted {
+        private final String rootUrl;
+        private final long generation;
+        private final CachedContent content;
+
+        /**
+         * Standard constructor.
+         *
+         * @param rootUrl    the root URL.
+         * @param generation the generation of the show.
+         * @param content    the encoded content.
+         */
+        private Rooted(String rootUrl, long generation, CachedContent content) {
+            this.rootUrl = rootUrl;
+            this.generation = generation;
+            this.content = content;
+        }
+
+        /**
+         * If the content was built for the given root URL and generation.
+         *
+         * @param url     the current root URL.
+         * @param current the current generation of the show.
+         * @return true if so.
+         */
+        private boolean isFor(String url, long current) {
+            if (generation != current) {
+                return false;
+            }
+            if (rootUrl == null) {
+                return url == null;
+            }
+            return rootUrl.equals(url);
+        }
+    }
+
+    /**
+     * The encoded content versions of the pages, together with the versions they were built from.
+     */
+    private static final class Versions {
+        private final long[] values;
+        private final CachedContent content;
+
+        /**
+         * Standard constructor.
+         *
+         * @param values  the versions.
+         * @param content the encoded versions.
+         */
+        private Versions(long[] values, CachedContent content) {
+            this.values = values;
+            this.content = content;
+        }
+    }
+
+    /**
+     * The serialized page data of every page, together with the root URL and the generation of the show
+     * it was built for.
+     */
+    private static final class PageResponses {
+        private final String rootUrl;
+        private final long generation;
+        private final AtomicReferenceArray<PageResponse> slots;
+
+        /**
+         * Standard constructor.
+         *
+         * @param rootUrl    the root URL.
+         * @param generation the generation of the show.
+         * @param size       the number of pages.
+         */
+        private PageResponses(String rootUrl, long generation, int size) {
+            this.rootUrl = rootUrl;
+            this.generation = generation;
+            this.slots = new AtomicReferenceArray<PageResponse>(size);
+        }
+
+        /**
+         * If the responses were built for the given root URL and generation.
+         *
+         * @param url     the current root URL.
+         * @param current the current generation of the show.
+         * @return true if so.
+         */
+        private boolean isFor(String url, long current) {
+            if (generation != current) {
+                return false;
+            }
+            if (rootUrl == null) {
+                return url == null;
+            }
+            return rootUrl.equals(url);
+        }
+
+        /**
+         * The response of the page at the index, or null if it isn't built yet.
+         *
+         * @param index the index.
+         * @return the response.
+         */
+        private PageResponse get(int index) {
+            return slots.get(index);
+        }
+
+        /**
+         * Sets the response of the page at the index.
+         *
+         * @param index    the index.
+         * @param response the response.
+         */
+        private void set(int index, PageResponse response) {
+            slots.set(index, response);
+        }
+    }
+
+    /**
+     * The serialized data of one page and the content version it was built for.
+     */
+    private static final class PageResponse {
+        private final long version;
+        private final CachedContent content;
+
+        /**
+         * Standard constructor.
+         *
+         * @param version the content version of the page.
+         * @param content the serialized page data.
+         */
+        private PageResponse(long version, CachedContent content) {
+            this.version = version;
+            this.content = content;
+        }
+    }
+
+    /**
+     * How the displays of a slide show decide when to move to the next page.
+     */
+    public static enum Playback {
+        /**
+         * Every display keeps its own time and asks for the next page when it is done with the current one.
+         */
+        LOCAL {
+            @Override
+            public String getDisplayName() {
+                return Messages.Playback_Local();
+            }
+        },
+        /**
+         * A shared server side clock advances the show and all displays follow it.
+         */
+        PUSH {
+            @Override
+            public String getDisplayName() {
+                return Messages.Playback_Push();
+            }
+        },
+        /**
+         * Every display works out the current page from the show's page times and a clock synced with the server,
+         * so that all displays switch at the same time without asking the server for each page.
+         */
+        SYNCHRONIZED {
+            @Override
+            public String getDisplayName() {
+                return Messages.Playback_Synchronized();
+            }
+        };
+
+        /**
+         * The human readable name of the mode.
+         *
+         * @return the name.
+         */
+        public abstract String getDisplayName();
+    }
+
     /**
      * A POJO that contains the info needed for the JavaScript code to do it's thing.
      */
@@ -387,6 +1656,8 @@ public class SlideShow implements Serializable {
         private String url;
         private int index;
         private int timeout;
+        private long version = -1;
+        private int unchangedTimeout;
 
         /**
          * Standard constructor.
@@ -401,6 +1672,21 @@ public class SlideShow implements Serializable {
             this.timeout = timeout;
         }
 
+        /**
+         * Standard constructor.
+         *
+         * @param url              the URL
+         * @param index            the index
+         * @param timeout          the display time.
+         * @param version          the content version of the page, or -1 if unknown.
+         * @param unchangedTimeout the display time if the page hasn't changed since it was last shown, or 0.
+         */
+        public PagePojo(String url, int index, int timeout, long version, int unchangedTimeout) {
+            this(url, index, timeout);
+            this.version = version;
+            this.unchangedTimeout = unchangedTimeout;
+        }
+
         /**
          * Default constructor.
          * <strong>Do not use unless you are a serializer.</strong>
@@ -443,5 +1729,26 @@ public class SlideShow implements Serializable {
         public int getTimeoutMs() {
             return (int)TimeUnit.SECONDS.toMillis(timeout);
         }
+
+        /**
+         * The content version of the page. If it is the same as when the client last showed the page,
+         * the client can reuse what it has loaded.
+         *
+         * @return the version, or -1 if unknown and the page should be reloaded.
+         * @see Page#getContentVersion()
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * The time the page should be displayed (in milliseconds) if it hasn't changed since the client last showed it,
+         * or 0 if it should be shown for the full {@link #getTimeoutMs()}.
+         *
+         * @return the time in milliseconds.
+         */
+        public int getUnchangedTimeoutMs() {
+            return (int)TimeUnit.SECONDS.toMillis(unchangedTimeout);
+        }
     }
 }
@@ -28,13 +28,22 @@ import hudson.Extension;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
 import hudson.util.FormValidation;
+import jenkins.plugins.slideshow.CachedContent;
 import jenkins.plugins.slideshow.Messages;
 import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.UrlProxy;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A page that shows an arbitrary URL.
@@ -44,7 +53,10 @@ import java.net.URISyntaxException;
  */
 public class UrlPage extends Page {
 
+    private static final Logger logger = Logger.getLogger(UrlPage.class.getName());
+
     private String url;
+    private Proxy proxy;
 
     /**
      * Standard constructor.
@@ -52,10 +64,23 @@ public class UrlPage extends Page {
      * @param overrideTime if this pages should be displayed for a different time than other pages.
      * @param url          the URL itself.
      */
-    @DataBoundConstructor
     public UrlPage(Time overrideTime, String url) {
-        super(overrideTime);
+        this(overrideTime, null, url, null);
+    }
+
+    /**
+     * Standard constructor.
+     *
+     * @param overrideTime if this pages should be displayed for a different time than other pages.
+     * @param refresh      how long a preloaded page stays fresh, or null.
+     * @param url          the URL itself.
+     * @param proxy        if the URL should be fetched and cached by the server, or null to let the displays fetch it.
+     */
+    @DataBoundConstructor
+    public UrlPage(Time overrideTime, Refresh refresh, String url, Proxy proxy) {
+        super(overrideTime, refresh);
         this.url = url;
+        this.proxy = proxy;
     }
 
     /**
@@ -84,7 +109,8 @@ public class UrlPage extends Page {
 
         /**
          * Performs a FormValidation on the url value.
-         * Validates != null, not empty and that {@link URI#URI(String)} doesn't throw an exception.
+         * Validates != null, not empty, that {@link URI#URI(String)} doesn't throw an exception
+         * and that an absolute URL is http or https.
          * Called from Jelly.
          *
          * @param value the value to check.
@@ -95,7 +121,10 @@ public class UrlPage extends Page {
                 return FormValidation.error("Please provide a value.");
             } else {
                 try {
-                    new URI(value);
+                    URI uri = new URI(value);
+                    if (uri.isAbsolute() && !UrlProxy.isAllowed(value)) {
+                        return FormValidation.error("Only http and https URLs can be shown.");
+                    }
                     return FormValidation.ok();
                 } catch (URISyntaxException e) {
                     return FormValidation.error("Not a valid URI: " + e.getMessage());
@@ -110,6 +139,7 @@ public class UrlPage extends Page {
      *
      * @return the URL
      */
+    @Exported
     public String getUrl() {
         return url;
     }
@@ -124,8 +154,129 @@ public class UrlPage extends Page {
         this.url = url;
     }
 
+    /**
+     * If the URL is fetched and cached by the server, or null if the displays fetch it themselves.
+     *
+     * @return the proxy settings.
+     */
+    public Proxy getProxy() {
+        return proxy;
+    }
+
+    /**
+     * If the URL is fetched and cached by the server, or null if the displays fetch it themselves.
+     *
+     * @param proxy the proxy settings.
+     */
+    public void setProxy(Proxy proxy) {
+        this.proxy = proxy;
+        if (getParent() != null) {
+            getParent().invalidate();
+        }
+    }
+
+    @Override
+    public FormValidation check() {
+        FormValidation validation = super.check();
+        if (validation.kind != FormValidation.Kind.OK) {
+            return validation;
+        }
+        return ((UrlPageDescriptor)getDescriptor()).doCheckUrl(url);
+    }
+
     @Override
     public String getFullDisplayUrl() {
+        if (proxy != null) {
+            return null;
+        }
         return PluginImpl.getFromRootUrl(url);
     }
+
+    @Override
+    public String getDisplayUrl() {
+        if (proxy != null) {
+            return super.getDisplayUrl() + "/proxy";
+        }
+        return super.getDisplayUrl();
+    }
+
+    /**
+     * Serves the server side cached copy of the URL.
+     * If the URL can't be fetched the display is sent to the URL directly.
+     * The copy is served with {@link UrlProxy#CONTENT_SECURITY_POLICY} so that it isn't treated
+     * as coming from Jenkins itself.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doProxy(StaplerRequest request, StaplerResponse response) throws IOException {
+        Hudson.getInstance().checkPermission(Hudson.READ);
+        String target = PluginImpl.getFromRootUrl(url);
+        if (!UrlProxy.isAllowed(target)) {
+            response.sendError(StaplerResponse.SC_FORBIDDEN, "Only http and https URLs can be proxied.");
+            return;
+        }
+        long maxStaleMs = 0;
+        if (proxy != null) {
+            maxStaleMs = TimeUnit.SECONDS.toMillis(proxy.getMaxStaleness());
+        }
+        String show = null;
+        if (getParent() != null) {
+            show = getParent().getName();
+        }
+        CachedContent content;
+        try {
+            content = UrlProxy.getInstance().get(target, maxStaleMs, show);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not proxy " + target + ", sending the display there directly.", e);
+            response.sendRedirect2(target);
+            return;
+        }
+        response.setHeader("Content-Security-Policy", UrlProxy.CONTENT_SECURITY_POLICY);
+        content.serve(request, response);
+    }
+
+    /**
+     * The optional block that makes the server fetch and cache the URL for all displays.
+     */
+    public static class Proxy {
+        int maxStaleness;
+
+        /**
+         * Standard constructor.
+         *
+         * @param maxStaleness how long (in seconds) a cached copy may be served after it has expired.
+         */
+        @DataBoundConstructor
+        public Proxy(int maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+
+        /**
+         * Default constructor.
+         * <strong>Do not use unless you are a serializer.</strong>
+         */
+        public Proxy() {
+        }
+
+        /**
+         * How long (in seconds) a cached copy may be served after it has expired
+         * while a fresh copy is fetched in the background.
+         *
+         * @return the time in seconds.
+         */
+        public int getMaxStaleness() {
+            return maxStaleness;
+        }
+
+        /**
+         * How long (in seconds) a cached copy may be served after it has expired.
+         *
+         * @param maxStaleness the time in seconds.
+         */
+        public void setMaxStaleness(int maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+    }
 }
@@ -26,18 +26,28 @@ package jenkins.plugins.slideshow.model;
 
 import hudson.Extension;
 import hudson.model.Descriptor;
+import hudson.model.AutoCompletionCandidates;
 import hudson.model.Hudson;
 import hudson.model.View;
+import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import jenkins.plugins.slideshow.CachedContent;
 import jenkins.plugins.slideshow.Messages;
 import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.ViewChangeTracker;
+import jenkins.plugins.slideshow.ViewIndex;
+import jenkins.plugins.slideshow.ViewSnapshots;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A page where the user can select a view to show in the slideshow.
@@ -47,7 +57,10 @@ import java.util.List;
  */
 public class ViewPage extends Page {
 
+    private static final Logger logger = Logger.getLogger(ViewPage.class.getName());
+
     private ViewPojo view;
+    private boolean snapshot;
 
     /**
      * Standard constructor.
@@ -56,9 +69,22 @@ public class ViewPage extends Page {
      * @param viewUrl         the URL of the view to show.
      * @see Page#Page(jenkins.plugins.slideshow.model.Page.Time)
      */
-    @DataBoundConstructor
     public ViewPage(Time overrideTime, String viewUrl) {
-        super(overrideTime);
+        this(overrideTime, null, viewUrl, false);
+    }
+
+    /**
+     * Standard constructor.
+     *
+     * @param overrideTime the display time if it is overridden.
+     * @param refresh      how long a preloaded page stays fresh, or null.
+     * @param viewUrl      the URL of the view to show.
+     * @param snapshot     if the displays should be shown a shared, periodically refreshed snapshot of the view.
+     */
+    @DataBoundConstructor
+    public ViewPage(Time overrideTime, Refresh refresh, String viewUrl, boolean snapshot) {
+        super(overrideTime, refresh);
+        this.snapshot = snapshot;
         this.view = findView(viewUrl);
         if (view == null) {
             throw new IllegalArgumentException("No view with url \"" + viewUrl + "\" found!");
@@ -73,11 +99,95 @@ public class ViewPage extends Page {
     public ViewPage() {
     }
 
+    @Override
+    public FormValidation check() {
+        FormValidation validation = super.check();
+        if (validation.kind != FormValidation.Kind.OK) {
+            return validation;
+        }
+        return ((ViewPageDescriptor)getDescriptor()).doCheckViewUrl(getViewUrl());
+    }
+
     @Override
     public String getFullDisplayUrl() {
+        if (snapshot) {
+            return null;
+        }
+        return getLiveUrl();
+    }
+
+    @Override
+    public String getDisplayUrl() {
+        if (snapshot) {
+            return super.getDisplayUrl() + "/snapshot";
+        }
+        return super.getDisplayUrl();
+    }
+
+    /**
+     * The version of the view, bumped when one of its jobs builds.
+     *
+     * @return the version.
+     * @see ViewChangeTracker
+     */
+    @Override
+    public long getContentVersion() {
+        return ViewChangeTracker.getVersion(view.getViewUrl());
+    }
+
+    /**
+     * The URL to the view itself, including the context root.
+     *
+     * @return the URL.
+     */
+    public String getLiveUrl() {
         return PluginImpl.getFromRootUrl(view.getViewUrl());
     }
 
+    /**
+     * If the displays are shown a shared, periodically refreshed snapshot of the view
+     * instead of rendering the view themselves.
+     *
+     * @return true if so.
+     * @see ViewSnapshots
+     */
+    @Exported
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * If the displays are shown a shared snapshot of the view.
+     *
+     * @param snapshot true if so.
+     */
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+        if (getParent() != null) {
+            getParent().invalidate();
+        }
+    }
+
+    /**
+     * Serves the shared snapshot of the view.
+     * If no snapshot can be made the display is sent to the live view.
+     *
+     * @param request  the request.
+     * @param response the response.
+     * @throws IOException if so.
+     */
+    public void doSnapshot(StaplerRequest request, StaplerResponse response) throws IOException {
+        CachedContent content;
+        try {
+            content = ViewSnapshots.getInstance().getSnapshot(this, request, response);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not snapshot " + getViewUrl() + ", showing it live.", e);
+            response.sendRedirect2(getLiveUrl());
+            return;
+        }
+        content.serve(request, response);
+    }
+
     @Override
     public Descriptor<Page> getDescriptor() {
         return Hudson.getInstance().getDescriptorByType(ViewPageDescriptor.class);
@@ -98,6 +208,7 @@ public class ViewPage extends Page {
      * @return the URL.
      * @see jenkins.plugins.slideshow.model.ViewPage.ViewPojo#getViewUrl()
      */
+    @Exported
     public String getViewUrl() {
         if (view != null) {
             return view.getViewUrl();
@@ -114,22 +225,35 @@ public class ViewPage extends Page {
      */
     public void setView(ViewPojo view) {
         this.view = view;
+        if (getParent() != null) {
+            getParent().invalidate();
+        }
     }
 
     /**
-     * Finds the view with the given URL.
+     * If the view to show doesn't exist anymore.
+     *
+     * @return true if so.
+     * @see ViewIndex
+     */
+    @Exported
+    public boolean isMissing() {
+        return view == null || ViewIndex.get(view.getViewUrl()) == null;
+    }
+
+    /**
+     * Finds the view with the given URL, including views nested in other view groups.
      *
      * @param viewUrl the URL of the view to find.
-     * @return the view.
+     * @return the view, or null if there is none.
+     * @see ViewIndex
      */
     public static ViewPojo findView(String viewUrl) {
-        Collection<View> views = Hudson.getInstance().getViews();
-        for (View v : views) {
-            if (viewUrl.equals(v.getViewUrl())) {
-                return new ViewPojo(v);
-            }
+        View v = ViewIndex.get(viewUrl);
+        if (v == null) {
+            return null;
         }
-        return null;
+        return new ViewPojo(v);
     }
 
     /**
@@ -138,6 +262,11 @@ public class ViewPage extends Page {
     @Extension
     public static class ViewPageDescriptor extends PageDescriptor {
 
+        /**
+         * The largest number of views suggested while typing.
+         */
+        public static final int MAX_SUGGESTIONS = 20;
+
         @Override
         public String getDisplayName() {
             return Messages.ViewPage();
@@ -158,18 +287,46 @@ public class ViewPage extends Page {
         }
 
         /**
-         * Lists all views in the system as {@link ViewPojo}s.
+         * Suggests views whose name or URL starts with what has been typed so far.
+         * Called from Jelly while the user types in the view field.
+         *
+         * @param value what has been typed.
+         * @return at most {@link #MAX_SUGGESTIONS} view URLs.
+         */
+        public AutoCompletionCandidates doAutoCompleteViewUrl(@QueryParameter String value) {
+            AutoCompletionCandidates candidates = new AutoCompletionCandidates();
+            for (ViewPojo v : ViewIndex.getCatalogue().search(value, MAX_SUGGESTIONS)) {
+                candidates.add(v.getViewUrl());
+            }
+            return candidates;
+        }
+
+        /**
+         * Checks that the view exists and tells which view it is.
+         * Called from Jelly.
+         *
+         * @param value the URL of the view.
+         * @return ok with the full name of the view, or an error if there is no such view.
+         */
+        public FormValidation doCheckViewUrl(@QueryParameter String value) {
+            if (value == null || value.length() == 0) {
+                return FormValidation.error("Please provide a value.");
+            }
+            View v = ViewIndex.get(value);
+            if (v == null) {
+                return FormValidation.error("No view with url \"" + value + "\" found!");
+            }
+            return FormValidation.ok(ViewPojo.getFullName(v));
+        }
+
+        /**
+         * Lists all views in the system, including nested views, as {@link ViewPojo}s sorted by name.
          *
          * @return the views.
+         * @see ViewIndex#getSortedViews()
          */
         public List<ViewPojo> getViews() {
-            List<ViewPojo> list = new LinkedList<ViewPojo>();
-            Collection<View> views = Hudson.getInstance().getViews();
-            for (View v : views) {
-                list.add(new ViewPojo(v));
-            }
-            Collections.sort(list);
-            return list;
+            return ViewIndex.getSortedViews();
         }
     }
 
@@ -0,0 +1,345 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+/*
+ * Plays a slide show on a display.
+ * Served once per plugin version and cached by the browser, the show's settings come from
+ * the "slideshow" object in the shell and everything else from the show's manifest.
+ */
+var ti;
+var frame = document.getElementById("slideshowFrame");
+var manifest = null;
+var etag = null;
+var preload = slideshow.preload;
+var versions = null;
+var versionsEtag = null;
+var shown = [];
+var pool = [];
+var visible = null;
+var client = null;
+var current = -1;
+var lastBeat = 0;
+try {
+    client = window.localStorage.getItem("slideshowClient");
+} catch (e) {
+    // no local storage, the display gets a new id each time it is loaded
+}
+if (client == null) {
+    client = new Date().getTime().toString(36) + Math.floor(Math.random() * 1000000000).toString(36);
+    try {
+        window.localStorage.setItem("slideshowClient", client);
+    } catch (e) {
+        // no local storage, the display gets a new id each time it is loaded
+    }
+}
+function identify(xhr) {
+    xhr.setRequestHeader("X-Slideshow-Client", client);
+    xhr.setRequestHeader("X-Slideshow-Page", "" + current);
+    lastBeat = new Date().getTime();
+}
+/*
+ * Runs every heartbeatMs, sends a heartbeat unless some other request has told the server that the display is alive.
+ */
+function heartbeat() {
+    if (new Date().getTime() - lastBeat >= slideshow.heartbeatMs) {
+        var xhr = new XMLHttpRequest();
+        xhr.open("GET", slideshow.viewUrl + "/heartbeat", true);
+        identify(xhr);
+        xhr.send(null);
+    }
+}
+function slot(index) {
+    var s = pool[index];
+    if (s == null) {
+        var f = document.createElement("iframe");
+        f.style.cssText = "position: absolute; top: 0; left: 0; margin: 0; padding: 0; border: 0; "
+            + "width: 100%; height: 100%; visibility: hidden;";
+        document.body.appendChild(f);
+        s = {frame: f, loaded: 0};
+        pool[index] = s;
+    }
+    return s;
+}
+function versionOf(index) {
+    if (versions == null) {
+        return -1;
+    }
+    var v = versions[index];
+    if (v == null) {
+        return -1;
+    }
+    return v;
+}
+function load(index) {
+    var page = manifest.pages[index];
+    var s = slot(index);
+    var now = new Date().getTime();
+    var version = versionOf(index);
+    var stale = s.loaded == 0;
+    if (page.refreshMs > 0) {
+        stale = stale || now - s.loaded >= page.refreshMs;
+    }
+    if (version >= 0) {
+        stale = stale || s.version != version;
+    } else if (page.refreshMs == 0) {
+        stale = true;
+    }
+    if (stale) {
+        s.frame.src = page.url;
+        s.loaded = now;
+        s.version = version;
+    }
+    return s;
+}
+function resetPool() {
+    while (pool.length > 0) {
+        var s = pool.pop();
+        if (s != null) {
+            document.body.removeChild(s.frame);
+        }
+    }
+    visible = null;
+}
+function display(index) {
+    if (!preload) {
+        frame.src = manifest.pages[index].url;
+        return;
+    }
+    var s = load(index);
+    s.frame.style.visibility = "visible";
+    if (visible != null) {
+        if (visible != s) {
+            visible.frame.style.visibility = "hidden";
+        }
+    }
+    visible = s;
+    var next = (index + 1) % manifest.pages.length;
+    if (next != index) {
+        setTimeout("load(" + next + ")", manifest.pages[index].timeoutMs / 2);
+    }
+}
+function loadManifest(callback) {
+    var xhr = new XMLHttpRequest();
+    xhr.open("GET", slideshow.viewUrl + "/manifest", true);
+    identify(xhr);
+    if (etag != null) {
+        xhr.setRequestHeader("If-None-Match", etag);
+    }
+    xhr.onreadystatechange = function() {
+        if (xhr.readyState != 4) {
+            return;
+        }
+        if (xhr.status == 200) {
+            manifest = eval("(" + xhr.responseText + ")");
+            etag = xhr.getResponseHeader("ETag");
+            resetPool();
+            shown = [];
+        }
+        callback();
+    };
+    xhr.send(null);
+}
+function loadVersions(callback) {
+    if (manifest == null || !manifest.versioned) {
+        callback();
+        return;
+    }
+    var xhr = new XMLHttpRequest();
+    xhr.open("GET", slideshow.viewUrl + "/versions", true);
+    identify(xhr);
+    if (versionsEtag != null) {
+        xhr.setRequestHeader("If-None-Match", versionsEtag);
+    }
+    xhr.onreadystatechange = function() {
+        if (xhr.readyState != 4) {
+            return;
+        }
+        if (xhr.status == 200) {
+            versions = eval("(" + xhr.responseText + ")").versions;
+            versionsEtag = xhr.getResponseHeader("ETag");
+        }
+        callback();
+    };
+    xhr.send(null);
+}
+function start() {
+    loadManifest(function() {
+        loadVersions(function() { play(0); });
+    });
+}
+function play(index) {
+    if (manifest == null || manifest.pages.length == 0) {
+        ti = setTimeout("start()", 5000);
+        return;
+    }
+    if (index >= manifest.pages.length) {
+        index = 0;
+    }
+    var page = manifest.pages[index];
+    var version = versionOf(index);
+    var timeout = page.timeoutMs;
+    if (version >= 0) {
+        if (shown[index] == version) {
+            if (manifest.unchangedTimeoutMs > 0) {
+                timeout = manifest.unchangedTimeoutMs;
+            }
+        }
+    }
+    shown[index] = version;
+    current = index;
+    heartbeat();
+    display(index);
+    ti = setTimeout("next(" + index + ")", timeout);
+}
+function next(index) {
+    if (index + 1 >= manifest.pages.length) {
+        start();
+    } else {
+        play(index + 1);
+    }
+}
+var lastPoll = 0;
+/*
+ * Asks the server which page the shared ticker is showing and how long until it moves on,
+ * the answer comes at once and the display follows the schedule from the manifest until the next check in.
+ */
+function poll() {
+    var xhr = new XMLHttpRequest();
+    var sent = new Date().getTime();
+    xhr.open("GET", slideshow.viewUrl + "/poll?index=" + current, true);
+    identify(xhr);
+    xhr.onreadystatechange = function() {
+        if (xhr.readyState != 4) {
+            return;
+        }
+        var page = null;
+        if (xhr.status == 200) {
+            page = eval("(" + xhr.responseText + ")");
+        }
+        if (page == null || manifest == null || page.index >= manifest.pages.length) {
+            ti = setTimeout("startPush()", 5000);
+            return;
+        }
+        var received = new Date().getTime();
+        lastPoll = received;
+        // the server measured the remaining time about half a round trip ago
+        var remainingMs = parseInt(xhr.getResponseHeader("X-Remaining-Ms"), 10) - (received - sent) / 2;
+        follow(page.index, remainingMs);
+    };
+    xhr.send(null);
+}
+function startPush() {
+    loadManifest(poll);
+}
+function follow(index, remainingMs) {
+    if (index != current) {
+        current = index;
+        heartbeat();
+        display(index);
+    }
+    ti = setTimeout("advance(" + index + ")", Math.max(0, remainingMs));
+}
+function advance(index) {
+    if (new Date().getTime() - lastPoll >= slideshow.pushResyncMs) {
+        startPush();
+        return;
+    }
+    var next = (index + 1) % manifest.pages.length;
+    follow(next, Math.max(slideshow.pushMinPageMs, manifest.pages[next].timeoutMs));
+}
+var offset = 0;
+var lastSync = 0;
+var cycle = -1;
+function syncClock(callback) {
+    var xhr = new XMLHttpRequest();
+    var sent = new Date().getTime();
+    xhr.open("GET", slideshow.viewUrl + "/clock", true);
+    identify(xhr);
+    xhr.onreadystatechange = function() {
+        if (xhr.readyState != 4) {
+            return;
+        }
+        if (xhr.status == 200) {
+            var received = new Date().getTime();
+            var server = eval("(" + xhr.responseText + ")").now;
+            offset = server + (received - sent) / 2 - received;
+            lastSync = received;
+        }
+        callback();
+    };
+    xhr.send(null);
+}
+function startSync() {
+    syncClock(function() {
+        loadManifest(tickSync);
+    });
+}
+function tickSync() {
+    if (manifest == null || manifest.pages.length == 0 || manifest.cycleMs == 0) {
+        ti = setTimeout("startSync()", 5000);
+        return;
+    }
+    if (new Date().getTime() - lastSync >= slideshow.clockSyncMs) {
+        startSync();
+        return;
+    }
+    var elapsed = new Date().getTime() + offset - manifest.epoch;
+    var round = Math.floor(elapsed / manifest.cycleMs);
+    var t = elapsed - round * manifest.cycleMs;
+    var index = 0;
+    while (manifest.pages.length > index + 1) {
+        if (manifest.pages[index + 1].startMs > t) {
+            break;
+        }
+        index++;
+    }
+    if (index != current || round != cycle) {
+        if (current >= 0 && round != cycle) {
+            // a new round has started, also when the show has only one page
+            current = -1;
+            loadManifest(tickSync);
+            return;
+        }
+        cycle = round;
+        current = index;
+        heartbeat();
+        display(index);
+    }
+    var page = manifest.pages[index];
+    ti = setTimeout("tickSync()", Math.max(50, page.startMs + page.timeoutMs - t));
+}
+setInterval(heartbeat, slideshow.heartbeatMs);
+if (slideshow.playback == "PUSH") {
+    preload = false;
+    startPush();
+} else {
+    if (preload) {
+        frame.style.display = "none";
+    }
+    if (slideshow.playback == "SYNCHRONIZED") {
+        startSync();
+    } else {
+        start();
+    }
+}
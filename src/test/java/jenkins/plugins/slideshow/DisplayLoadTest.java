@@ -0,0 +1,383 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow;
+
+import hudson.PluginWrapper;
+import jenkins.plugins.slideshow.model.HtmlPage;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A load test that plays the slide shows of an in-process Jenkins on many simulated displays at once,
+ * doing what a display does: loading the shell and the manifest and then asking for the next page
+ * and loading it, over and over.
+ * <p/>
+ * It is skipped unless <code>-Dslideshow.load=true</code> is given, and is tuned with
+ * <code>slideshow.load.clients</code>, <code>.shows</code>, <code>.pages</code> and <code>.seconds</code>.
+ * The throughput and latencies of each endpoint and the allocation rate of the JVM are written as JSON to
+ * <code>target/slideshow-load.json</code>, so that runs against different versions of the plugin can be compared.
+ * Every display has a thread of its own, Jenkins' web server is the limit long before the threads are.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class DisplayLoadTest extends HudsonTestCase {
+
+    private static final String PROPERTY = "slideshow.load";
+    private static final int CLIENTS = Integer.getInteger(PROPERTY + ".clients", 200);
+    private static final int SHOWS = Integer.getInteger(PROPERTY + ".shows", 10);
+    private static final int PAGES = Integer.getInteger(PROPERTY + ".pages", 10);
+    private static final int SECONDS = Integer.getInteger(PROPERTY + ".seconds", 30);
+    private static final int TIMEOUT_MS = 30000;
+    private static final double P50 = 0.5;
+    private static final double P99 = 0.99;
+    private static final double NANOS_PER_MS = 1000000.0;
+    private static final String[] ENDPOINTS = {"shell", "manifest", "nextPageData", "page"};
+
+    @Override
+    public void runBare() throws Throwable {
+        if (Boolean.getBoolean(PROPERTY)) {
+            super.runBare();
+        }
+    }
+
+    /**
+     * Plays the shows on {@link #CLIENTS} displays for {@link #SECONDS} seconds and writes the report.
+     *
+     * @throws Exception if so.
+     */
+    public void testDisplays() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        for (int i = 0; i < SHOWS; i++) {
+            List<Page> pages = new ArrayList<Page>(PAGES);
+            for (int p = 0; p < PAGES; p++) {
+                pages.add(new HtmlPage(null, "<h1>Show " + i + " page " + p + "</h1>"));
+            }
+            SlideShow show = new SlideShow("load" + i, pages);
+            plugin.addShow(show);
+            plugin.save(show);
+        }
+        plugin.save();
+
+        String root = getURL().toExternalForm();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocated(threads);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(SECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<Display>> futures = new ArrayList<Future<Display>>(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            futures.add(executor.submit(new Display(root + SlideShows.URL_NAME + "/show/load" + (i % SHOWS) + "/",
+                    "client" + i, deadline)));
+        }
+        List<Display> displays = new ArrayList<Display>(CLIENTS);
+        for (Future<Display> future : futures) {
+            displays.add(future.get());
+        }
+        executor.shutdown();
+        long elapsed = System.nanoTime() - start;
+        long allocatedAfter = allocated(threads);
+
+        double seconds = elapsed / (NANOS_PER_MS * TimeUnit.SECONDS.toMillis(1));
+        JSONObject endpoints = new JSONObject();
+        Samples total = new Samples();
+        int errors = 0;
+        for (int e = 0; e < ENDPOINTS.length; e++) {
+            Samples samples = new Samples();
+            int failed = 0;
+            for (Display display : displays) {
+                samples.addAll(display.samples[e]);
+                failed += display.errors[e];
+            }
+            total.addAll(samples);
+            errors += failed;
+            endpoints.put(ENDPOINTS[e], samples.toJSON(failed, seconds));
+        }
+        JSONObject report = new JSONObject();
+        PluginWrapper wrapper = hudson.getPluginManager().getPlugin("slideshow");
+        if (wrapper != null) {
+            report.put("version", wrapper.getVersion());
+        }
+        report.put("clients", CLIENTS);
+        report.put("shows", SHOWS);
+        report.put("pages", PAGES);
+        report.put("seconds", seconds);
+        report.put("total", total.toJSON(errors, seconds));
+        report.put("endpoints", endpoints);
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            report.put("allocatedBytesPerSecond", (long)((allocatedAfter - allocatedBefore) / seconds));
+        }
+        File file = new File("target", "slideshow-load.json");
+        FileUtils.writeStringToFile(file, report.toString(2), "UTF-8");
+        assertTrue("No requests were made", total.size() > 0);
+    }
+
+    /**
+     * The bytes allocated by all live threads so far, or -1 if the JVM can't tell.
+     * Approximate, since the allocations of threads that have died are lost.
+     *
+     * @param threads the thread bean.
+     * @return the bytes.
+     */
+    private static long allocated(ThreadMXBean threads) {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)threads;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long sum = 0;
+        for (long bytes : sun.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                sum += bytes;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * One simulated display.
+     */
+    private static final class Display implements Callable<Display> {
+        private final String showUrl;
+        private final String client;
+        private final long deadline;
+        private final Samples[] samples = new Samples[ENDPOINTS.length];
+        private final int[] errors = new int[ENDPOINTS.length];
+        private String manifestEtag;
+
+        /**
+         * Standard constructor.
+         *
+         * @param showUrl  the absolute URL of the show, ending with a slash.
+         * @param client   the client id of the display.
+         * @param deadline when to stop, from {@link System#nanoTime()}.
+         */
+        private Display(String showUrl, String client, long deadline) {
+            this.showUrl = showUrl;
+            this.client = client;
+            this.deadline = deadline;
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = new Samples();
+            }
+        }
+
+        @Override
+        public Display call() {
+            get(0, showUrl);
+            int index = -1;
+            while (System.nanoTime() < deadline) {
+                if (index < 0) {
+                    get(1, showUrl + "manifest");
+                }
+                String data = get(2, showUrl + "nextPageData?index=" + index);
+                if (data == null || data.length() == 0) {
+                    index = -1;
+                    continue;
+                }
+                JSONObject page = JSONObject.fromObject(data);
+                String url = page.getString("url");
+                if (!PluginImpl.isAbsolute(url)) {
+                    url = showUrl + url;
+                }
+                get(3, url);
+                int next = page.getInt("index");
+                if (next <= index) {
+                    index = -1;
+                } else {
+                    index = next;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Makes a request and records how long it took.
+         *
+         * @param endpoint the index of the endpoint in {@link #ENDPOINTS}.
+         * @param url      the URL.
+         * @return the body, or null if the request failed.
+         */
+        private String get(int endpoint, String url) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection)new URL(url).openConnection();
+                connection.setConnectTimeout(TIMEOUT_MS);
+                connection.setReadTimeout(TIMEOUT_MS);
+                connection.setRequestProperty("X-Slideshow-Client", client);
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+                if (endpoint == 1 && manifestEtag != null) {
+                    connection.setRequestProperty("If-None-Match", manifestEtag);
+                }
+                int status = connection.getResponseCode();
+                if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                    errors[endpoint]++;
+                    drain(connection.getErrorStream());
+                    return null;
+                }
+                if (endpoint == 1 && status == HttpURLConnection.HTTP_OK) {
+                    manifestEtag = connection.getHeaderField("ETag");
+                }
+                String body = "";
+                InputStream in = connection.getInputStream();
+                try {
+                    if (endpoint == 2 && "gzip".equals(connection.getContentEncoding())) {
+                        body = IOUtils.toString(new GZIPInputStream(in), "UTF-8");
+                    } else if (endpoint == 2) {
+                        body = IOUtils.toString(in, "UTF-8");
+                    } else {
+                        drain(in);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+                samples[endpoint].add(System.nanoTime() - start);
+                return body;
+            } catch (IOException e) {
+                errors[endpoint]++;
+                return null;
+            }
+        }
+
+        /**
+         * Reads and throws away what is left of a response, so that the connection can be reused.
+         *
+         * @param in the stream, may be null.
+         * @throws IOException if so.
+         */
+        private static void drain(InputStream in) throws IOException {
+            if (in == null) {
+                return;
+            }
+            try {
+                IOUtils.copy(in, new NullOutputStream());
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+    }
+
+    /**
+     * Recorded latencies in nanoseconds.
+     */
+    private static final class Samples {
+        private static final int INITIAL = 1024;
+        private long[] values = new long[INITIAL];
+        private int size = 0;
+
+        /**
+         * Records one latency.
+         *
+         * @param nanos the latency.
+         */
+        private void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        /**
+         * Records all latencies of another recording.
+         *
+         * @param other the other recording.
+         */
+        private void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        /**
+         * The number of latencies.
+         *
+         * @return the number.
+         */
+        private int size() {
+            return size;
+        }
+
+        /**
+         * The summary of the latencies.
+         *
+         * @param errors  the number of failed requests.
+         * @param seconds the length of the run.
+         * @return the summary.
+         */
+        private JSONObject toJSON(int errors, double seconds) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            Map<String, Object> json = new LinkedHashMap<String, Object>();
+            json.put("requests", size);
+            json.put("errors", errors);
+            json.put("throughput", size / seconds);
+            json.put("p50Ms", percentile(sorted, P50));
+            json.put("p99Ms", percentile(sorted, P99));
+            if (size > 0) {
+                json.put("maxMs", sorted[size - 1] / NANOS_PER_MS);
+            }
+            return JSONObject.fromObject(json);
+        }
+
+        /**
+         * A percentile of sorted latencies, in milliseconds.
+         *
+         * @param sorted   the sorted latencies.
+         * @param fraction the percentile as a fraction.
+         * @return the latency, or 0 if there are none.
+         */
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int)Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / NANOS_PER_MS;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow;
+
+import hudson.Util;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import jenkins.plugins.slideshow.model.UrlPage;
+import org.apache.commons.io.FileUtils;
+import org.jvnet.hudson.test.HudsonTestCase;
+import org.jvnet.hudson.test.recipes.LocalData;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests for how {@link PluginImpl} stores each show in its own file.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class PluginImplTest extends HudsonTestCase {
+
+    /**
+     * Tests that a show is saved to its own file and the plugin's file only has the names.
+     *
+     * @throws Exception if so.
+     */
+    public void testShowIsStoredInItsOwnFile() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        SlideShow show = createShow("My Show");
+        plugin.addShow(show);
+        plugin.save(show);
+        plugin.save();
+
+        File file = showFile("My Show");
+        assertTrue(file.isFile());
+        assertEquals("My Show", ((SlideShow)PluginImpl.getShowFile("My Show").read()).getName());
+        String config = FileUtils.readFileToString(new File(hudson.getRootDir(), "slideshow.xml"));
+        assertTrue(config.contains("<string>My Show</string>"));
+        assertFalse(config.contains("http://example.com/"));
+    }
+
+    /**
+     * Tests that shows saved together with the plugin by older versions are moved to files of their own.
+     *
+     * @throws Exception if so.
+     */
+    @LocalData
+    public void testMigrate() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        assertEquals(Arrays.asList("Old Show", "Second"), plugin.getShowNames());
+        assertTrue(showFile("Old Show").isFile());
+        assertTrue(showFile("Second").isFile());
+        String config = FileUtils.readFileToString(new File(hudson.getRootDir(), "slideshow.xml"));
+        assertFalse(config.contains("<shows>"));
+
+        SlideShow show = plugin.getShow("old show");
+        assertNotNull(show);
+        assertEquals(1, show.getPages().size());
+        UrlPage page = (UrlPage)show.getPage(0);
+        assertEquals("http://example.com/", page.getUrl());
+        assertEquals(10, page.getSpecifiedTime());
+        assertTrue(show.isHideHeader());
+        assertTrue("Loaded shows get an epoch", show.getEpoch() > 0);
+    }
+
+    /**
+     * Tests that a show without a file is left out, without losing its place in the list.
+     *
+     * @throws Exception if so.
+     */
+    @LocalData
+    public void testMissingShowFile() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        assertEquals(Arrays.asList("Present", "Gone"), plugin.getShowNames());
+        assertNull(plugin.getShow("Gone"));
+        assertNull(plugin.getShow("Gone"));
+        SlideShow present = plugin.getShow("present");
+        assertNotNull(present);
+        assertEquals(1318000000000L, present.getEpoch());
+        assertEquals(1, plugin.getShows().size());
+    }
+
+    /**
+     * Tests that removing a show saves the list and deletes its file.
+     *
+     * @throws Exception if so.
+     */
+    public void testRemoveShow() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        SlideShow show = createShow("Doomed");
+        plugin.addShow(show);
+        plugin.save(show);
+        plugin.save();
+        assertTrue(showFile("Doomed").isFile());
+
+        assertTrue(plugin.removeShow(show));
+        assertFalse(showFile("Doomed").exists());
+        assertFalse(plugin.hasShow("doomed"));
+        String config = FileUtils.readFileToString(new File(hudson.getRootDir(), "slideshow.xml"));
+        assertFalse(config.contains("Doomed"));
+        assertFalse(plugin.removeShow(show));
+    }
+
+    /**
+     * Tests that renaming a show moves its file and keeps its place in the list.
+     *
+     * @throws Exception if so.
+     */
+    public void testRenameShow() throws Exception {
+        PluginImpl plugin = PluginImpl.getInstance();
+        SlideShow first = createShow("First");
+        SlideShow second = createShow("Second");
+        plugin.addShow(first);
+        plugin.addShow(second);
+        plugin.save(first);
+        plugin.save(second);
+        plugin.save();
+
+        plugin.renameShow(first, "Renamed");
+        assertEquals(Arrays.asList("Renamed", "Second"), plugin.getShowNames());
+        assertSame(first, plugin.getShow("renamed"));
+        assertNull(plugin.getShow("First"));
+        assertTrue(showFile("Renamed").isFile());
+        assertFalse(showFile("First").exists());
+
+        try {
+            plugin.renameShow(first, "SECOND");
+            fail("The name is taken");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Renamed", first.getName());
+        }
+    }
+
+    /**
+     * Tests that a name that is taken, ignoring case, can't be added again.
+     */
+    public void testAddTakenName() {
+        PluginImpl plugin = PluginImpl.getInstance();
+        plugin.addShow(createShow("Taken"));
+        try {
+            plugin.addShow(createShow("TAKEN"));
+            fail("The name is taken");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, plugin.getShowNames().size());
+        }
+    }
+
+    /**
+     * The file that a show is stored in.
+     *
+     * @param name the name of the show.
+     * @return the file.
+     */
+    private File showFile(String name) {
+        return new File(PluginImpl.getShowsDirectory(), Util.rawEncode(name) + ".xml");
+    }
+
+    /**
+     * Creates a show with one page.
+     *
+     * @param name the name.
+     * @return the show.
+     */
+    private static SlideShow createShow(String name) {
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new UrlPage(null, "http://example.com/"));
+        return new SlideShow(name, pages);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Tests for the limits of {@link UrlProxy}.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class UrlProxyTest extends TestCase {
+
+    private static final int MAX = 100;
+
+    /**
+     * Tests that only http and https URLs may be fetched.
+     */
+    public void testIsAllowed() {
+        assertTrue(UrlProxy.isAllowed("http://example.com/"));
+        assertTrue(UrlProxy.isAllowed("HTTPS://example.com/"));
+        assertTrue(UrlProxy.isAllowed("  https://example.com/"));
+        assertFalse(UrlProxy.isAllowed("file:///etc/passwd"));
+        assertFalse(UrlProxy.isAllowed("jar:file:/tmp/x.jar!/"));
+        assertFalse(UrlProxy.isAllowed("ftp://example.com/"));
+        assertFalse(UrlProxy.isAllowed("httpx://example.com/"));
+        assertFalse(UrlProxy.isAllowed("/relative"));
+        assertFalse(UrlProxy.isAllowed(""));
+        assertFalse(UrlProxy.isAllowed(null));
+    }
+
+    /**
+     * Tests that a body up to the limit is read whole.
+     *
+     * @throws IOException if so.
+     */
+    public void testReadWithinLimit() throws IOException {
+        byte[] body = new byte[MAX];
+        Arrays.fill(body, (byte)'x');
+        assertTrue(Arrays.equals(body, UrlProxy.read(new ByteArrayInputStream(body), MAX)));
+        assertEquals(0, UrlProxy.read(new ByteArrayInputStream(new byte[0]), MAX).length);
+    }
+
+    /**
+     * Tests that a body over the limit is refused.
+     */
+    public void testReadOverLimit() {
+        try {
+            UrlProxy.read(new ByteArrayInputStream(new byte[MAX + 1]), MAX);
+            fail("The body is too large");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(String.valueOf(MAX)));
+        }
+    }
+
+    /**
+     * Tests that proxied html gets a base tag pointing to where it was fetched from.
+     *
+     * @throws Exception if so.
+     */
+    public void testWithBase() throws Exception {
+        byte[] html = "<html><HEAD lang=\"en\"><title>x</title></HEAD></html>".getBytes("ISO-8859-1");
+        String based = new String(UrlProxy.withBase(html, "http://example.com/a/"), "ISO-8859-1");
+        assertEquals("<html><HEAD lang=\"en\"><base href=\"http://example.com/a/\"/><title>x</title></HEAD></html>",
+                based);
+        byte[] fragment = "<p>no head</p>".getBytes("ISO-8859-1");
+        assertSame(fragment, UrlProxy.withBase(fragment, "http://example.com/"));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow;
+
+import hudson.model.ListView;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import jenkins.plugins.slideshow.model.UrlPage;
+import jenkins.plugins.slideshow.model.ViewPage;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests for {@link ViewIndex}.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class ViewIndexTest extends HudsonTestCase {
+
+    /**
+     * Tests that renaming a view points the pages showing it to the new URL,
+     * by publishing new pages rather than changing the ones in the current snapshot.
+     *
+     * @throws Exception if so.
+     */
+    public void testRenamedViewIsFollowed() throws Exception {
+        ListView view = new ListView("Before", hudson);
+        hudson.addView(view);
+        ViewIndex.rebuild();
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new ViewPage(null, view.getViewUrl()));
+        pages.add(new UrlPage(null, "http://example.com/"));
+        SlideShow show = new SlideShow("Wall", pages);
+        PluginImpl.getInstance().addShow(show);
+        Page before = show.getPage(0);
+
+        view.rename("After");
+        hudson.save();
+
+        ViewPage after = (ViewPage)show.getPage(0);
+        assertNotSame(before, after);
+        assertEquals(view.getViewUrl(), after.getViewUrl());
+        assertFalse(after.isMissing());
+        assertEquals("view/Before/", ((ViewPage)before).getViewUrl());
+    }
+
+    /**
+     * Tests that a renamed view is only looked up in the shows the index has for it,
+     * the other shows are never asked to replace the view.
+     *
+     * @throws Exception if so.
+     */
+    public void testOnlyShowsOfTheViewAreAsked() throws Exception {
+        ListView view = new ListView("Lonely", hudson);
+        hudson.addView(view);
+        ListView other = new ListView("Other", hudson);
+        hudson.addView(other);
+        ViewIndex.rebuild();
+
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new ViewPage(null, view.getViewUrl()));
+        CountingShow showing = new CountingShow("Showing", pages);
+        PluginImpl.getInstance().addShow(showing);
+        pages = new LinkedList<Page>();
+        pages.add(new ViewPage(null, other.getViewUrl()));
+        pages.add(new UrlPage(null, "http://example.com/"));
+        CountingShow notShowing = new CountingShow("NotShowing", pages);
+        PluginImpl.getInstance().addShow(notShowing);
+
+        view.rename("Renamed");
+        hudson.save();
+
+        assertEquals(1, showing.replaced);
+        assertEquals(0, notShowing.replaced);
+        assertEquals(view.getViewUrl(), ((ViewPage)showing.getPage(0)).getViewUrl());
+    }
+
+    /**
+     * A show that counts how often it is asked to replace a view.
+     */
+    private static final class CountingShow extends SlideShow {
+        private int replaced = 0;
+
+        /**
+         * Standard constructor.
+         *
+         * @param name  the name.
+         * @param pages the pages.
+         */
+        private CountingShow(String name, List<Page> pages) {
+            super(name, pages);
+        }
+
+        @Override
+        public synchronized boolean replaceView(String viewUrl, ViewPage.ViewPojo view) {
+            replaced++;
+            return super.replaceView(viewUrl, view);
+        }
+    }
+}
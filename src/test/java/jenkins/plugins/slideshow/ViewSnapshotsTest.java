@@ -0,0 +1,144 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow;
+
+import hudson.model.ListView;
+import jenkins.plugins.slideshow.model.Page;
+import jenkins.plugins.slideshow.model.SlideShow;
+import jenkins.plugins.slideshow.model.ViewPage;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests for {@link ViewSnapshots}.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class ViewSnapshotsTest extends HudsonTestCase {
+
+    /**
+     * Tests that a snapshot is rendered with the header settings of the show it belongs to,
+     * the same as when the view is shown live.
+     *
+     * @throws Exception if so.
+     */
+    public void testSnapshotHidesHeaders() throws Exception {
+        ListView view = new ListView("Wall", hudson);
+        hudson.addView(view);
+        ViewIndex.rebuild();
+        addShow("Hidden", view, true);
+        addShow("Shown", view, false);
+
+        WebClient client = new WebClient();
+        client.setJavaScriptEnabled(false);
+        String hidden = client.goTo("slideShows/show/Hidden/page/0/snapshot").getWebResponse().getContentAsString();
+        assertTrue(hidden.contains("header.style.display=\"none\""));
+        assertFalse(hidden.contains("sidePanel.style.display=\"none\""));
+        assertTrue(hidden.contains("<base href=\""));
+        String shown = client.goTo("slideShows/show/Shown/page/0/snapshot").getWebResponse().getContentAsString();
+        assertFalse(shown.contains("header.style.display=\"none\""));
+    }
+
+    /**
+     * Tests that the snapshot key changes with everything the rendered view depends on.
+     */
+    public void testKey() {
+        String key = ViewSnapshots.getKey("http://ci", "view/Wall/", true, false, true, "anonymous");
+        assertEquals(key, ViewSnapshots.getKey("http://ci", "view/Wall/", true, false, true, "anonymous"));
+        assertFalse(key.equals(ViewSnapshots.getKey("http://ci.example.com", "view/Wall/", true, false, true,
+                "anonymous")));
+        assertFalse(key.equals(ViewSnapshots.getKey("http://ci", "view/Other/", true, false, true, "anonymous")));
+        assertFalse(key.equals(ViewSnapshots.getKey("http://ci", "view/Wall/", false, false, true, "anonymous")));
+        assertFalse(key.equals(ViewSnapshots.getKey("http://ci", "view/Wall/", true, true, true, "anonymous")));
+        assertFalse(key.equals(ViewSnapshots.getKey("http://ci", "view/Wall/", true, false, false, "anonymous")));
+        assertFalse(key.equals(ViewSnapshots.getKey("http://ci", "view/Wall/", true, false, true, "alice")));
+    }
+
+    /**
+     * Tests that a load uses the loader of the caller, so that callers with the same key never get content
+     * loaded for someone else's settings.
+     *
+     * @throws Exception if so.
+     */
+    public void testCacheLoadsWithCallersLoader() throws Exception {
+        SnapshotCache cache = new SnapshotCache();
+        cache.get("key", new Fixed("first", 0), 0);
+        SnapshotCache.Snapshot snapshot = cache.get("key", new Fixed("second", Long.MAX_VALUE), 0);
+        assertEquals("second", new String(snapshot.getContent().getContent(), CachedContent.ENCODING));
+    }
+
+    /**
+     * Tests that expiring drops idle entries without loading anything.
+     *
+     * @throws Exception if so.
+     */
+    public void testExpire() throws Exception {
+        SnapshotCache cache = new SnapshotCache();
+        cache.get("key", new Fixed("first", 0), 0);
+        cache.expire(Long.MAX_VALUE);
+        assertEquals(1, cache.size());
+        Thread.sleep(2);
+        cache.expire(0);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Adds a show with one snapshotted view page.
+     *
+     * @param name       the name of the show.
+     * @param view       the view to show.
+     * @param hideHeader if the header is hidden.
+     */
+    private void addShow(String name, ListView view, boolean hideHeader) {
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new ViewPage(null, null, view.getViewUrl(), true));
+        PluginImpl.getInstance().addShow(new SlideShow(name, 10, hideHeader, false, false, pages));
+    }
+
+    /**
+     * A loader of fixed text.
+     */
+    private static final class Fixed implements SnapshotCache.Loader {
+        private final String text;
+        private final long freshUntil;
+
+        /**
+         * Standard constructor.
+         *
+         * @param text       the text to load.
+         * @param freshUntil until when it is fresh.
+         */
+        private Fixed(String text, long freshUntil) {
+            this.text = text;
+            this.freshUntil = freshUntil;
+        }
+
+        @Override
+        public SnapshotCache.Snapshot load(SnapshotCache.Snapshot previous) {
+            return new SnapshotCache.Snapshot(CachedContent.fromText("text/plain", text), freshUntil, null);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.model;
+
+import com.gargoylesoftware.htmlunit.WebResponse;
+import hudson.model.ListView;
+import hudson.tasks.Mailer;
+import jenkins.plugins.slideshow.CachedContent;
+import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.ViewChangeTracker;
+import jenkins.plugins.slideshow.ViewIndex;
+import net.sf.json.JSONObject;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests for the pre-serialized page responses of {@link SlideShow}.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class SlideShowTest extends HudsonTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Mailer.descriptor().setHudsonUrl("http://ci.example.com/");
+    }
+
+    /**
+     * Tests that the page response is built once and then reused.
+     */
+    public void testPageResponseIsReused() {
+        SlideShow show = createShow("Reused");
+        CachedContent first = show.getPageResponse(0);
+        assertNotNull(first);
+        assertSame(first, show.getPageResponse(0));
+        assertNull(show.getPageResponse(2));
+    }
+
+    /**
+     * Tests that the page responses are built again when the root URL changes.
+     */
+    public void testPageResponseFollowsRootUrl() {
+        SlideShow show = createShow("Rooted");
+        CachedContent first = show.getPageResponse(0);
+        Mailer.descriptor().setHudsonUrl("http://other.example.com/");
+        CachedContent second = show.getPageResponse(0);
+        assertNotSame(first, second);
+        assertSame(second, show.getPageResponse(0));
+    }
+
+    /**
+     * Tests that the page responses are built again when the show is reconfigured.
+     */
+    public void testPageResponseFollowsReconfiguration() {
+        SlideShow show = createShow("Reconfigured");
+        CachedContent first = show.getPageResponse(0);
+        show.setDefaultPageTime(show.getDefaultPageTime() + 1);
+        assertNotSame(first, show.getPageResponse(0));
+
+        CachedContent second = show.getPageResponse(0);
+        show.addPage(new UrlPage(null, null, "http://example.com/third", null));
+        assertNotSame(second, show.getPageResponse(0));
+        assertNotNull(show.getPageResponse(2));
+    }
+
+    /**
+     * Tests that the response of a view page is built again when the content version of the view changes,
+     * while the other pages keep theirs.
+     *
+     * @throws Exception if so.
+     */
+    public void testPageResponseFollowsContentVersion() throws Exception {
+        ListView view = new ListView("Wall", hudson);
+        hudson.addView(view);
+        ViewIndex.rebuild();
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new ViewPage(null, view.getViewUrl()));
+        pages.add(new UrlPage(null, null, "http://example.com/", null));
+        SlideShow show = new SlideShow("Versioned", pages);
+        PluginImpl.getInstance().addShow(show);
+
+        CachedContent viewResponse = show.getPageResponse(0);
+        CachedContent urlResponse = show.getPageResponse(1);
+        ViewChangeTracker.changedAll();
+        assertNotSame(viewResponse, show.getPageResponse(0));
+        assertSame(urlResponse, show.getPageResponse(1));
+    }
+
+    /**
+     * Tests that publishing pages in a new order leaves the pages of the previous snapshot as they were,
+     * so that readers of that snapshot never see the new indexes.
+     */
+    public void testPublishLeavesOldSnapshotAlone() {
+        SlideShow show = createShow("Moved");
+        Page first = show.getPage(0);
+        Page second = show.getPage(1);
+        List<Page> reversed = new LinkedList<Page>(show.getPages());
+        Collections.reverse(reversed);
+        show.setPages(reversed);
+
+        assertEquals(0, first.getIndex());
+        assertEquals(1, second.getIndex());
+        assertNotSame(first, show.getPage(1));
+        assertEquals(1, show.getPage(1).getIndex());
+        assertEquals(first.getFullDisplayUrl(), show.getPage(1).getFullDisplayUrl());
+        assertEquals(0, show.getPage(0).getIndex());
+    }
+
+    /**
+     * Tests that a display that already has the page data gets a 304 when it asks for it again.
+     *
+     * @throws Exception if so.
+     */
+    public void testPageDataRevalidates() throws Exception {
+        createShow("Served");
+        WebClient client = new WebClient();
+        client.setThrowExceptionOnFailingStatusCode(false);
+        String url = getURL() + "slideShows/show/Served/pageData?index=0";
+        WebResponse response = client.getPage(url).getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        String etag = response.getResponseHeaderValue("ETag");
+        assertNotNull(etag);
+
+        client.addRequestHeader("If-None-Match", etag);
+        response = client.getPage(url).getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, response.getStatusCode());
+    }
+
+    /**
+     * Tests that a manifest built while the show is reconfigured is not kept,
+     * so that displays don't stay on the old play list.
+     */
+    public void testManifestRacingReconfiguration() {
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new UrlPage(null, null, "http://example.com/first", null));
+        RacingShow show = new RacingShow("Racing", pages);
+        PluginImpl.getInstance().addShow(show);
+
+        CachedContent stale = show.getManifest();
+        CachedContent fresh = show.getManifest();
+        assertNotSame(stale, fresh);
+        assertFalse(stale.getEtag().equals(fresh.getEtag()));
+        assertSame(fresh, show.getManifest());
+    }
+
+    /**
+     * Tests that page responses built while the show is reconfigured are not kept,
+     * also when the number of pages stays the same.
+     */
+    public void testPageResponseRacingReconfiguration() {
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new UrlPage(null, null, "http://example.com/first", null));
+        RacingPageShow show = new RacingPageShow("RacingPage", pages);
+        PluginImpl.getInstance().addShow(show);
+
+        CachedContent stale = show.getPageResponse(0);
+        CachedContent fresh = show.getPageResponse(0);
+        assertNotSame(stale, fresh);
+        assertFalse(stale.getEtag().equals(fresh.getEtag()));
+        assertSame(fresh, show.getPageResponse(0));
+    }
+
+    /**
+     * A show that is reconfigured while its first page response is being built.
+     */
+    private static final class RacingPageShow extends SlideShow {
+        private boolean raced = false;
+
+        /**
+         * Standard constructor.
+         *
+         * @param name  the name.
+         * @param pages the pages.
+         */
+        private RacingPageShow(String name, List<Page> pages) {
+            super(name, pages);
+        }
+
+        @Override
+        public int getUnchangedPageTime() {
+            int time = super.getUnchangedPageTime();
+            if (!raced) {
+                raced = true;
+                setDefaultPageTime(getDefaultPageTime() + 1);
+            }
+            return time;
+        }
+    }
+
+    /**
+     * A show that is reconfigured while its first manifest is being built.
+     */
+    private static final class RacingShow extends SlideShow {
+        private boolean raced = false;
+
+        /**
+         * Standard constructor.
+         *
+         * @param name  the name.
+         * @param pages the pages.
+         */
+        private RacingShow(String name, List<Page> pages) {
+            super(name, pages);
+        }
+
+        @Override
+        protected JSONObject buildManifest() {
+            JSONObject json = super.buildManifest();
+            if (!raced) {
+                raced = true;
+                setDefaultPageTime(getDefaultPageTime() + 1);
+            }
+            return json;
+        }
+    }
+
+    /**
+     * Adds a show with two url pages.
+     *
+     * @param name the name of the show.
+     * @return the show.
+     */
+    private SlideShow createShow(String name) {
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new UrlPage(null, null, "http://example.com/first", null));
+        pages.add(new UrlPage(null, null, "http://example.com/second", null));
+        SlideShow show = new SlideShow(name, pages);
+        PluginImpl.getInstance().addShow(show);
+        return show;
+    }
+}
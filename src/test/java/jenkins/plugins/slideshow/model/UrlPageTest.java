@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2011 Robert Sandell - sandell.robert@gmail.com. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jenkins.plugins.slideshow.model;
+
+import com.gargoylesoftware.htmlunit.WebResponse;
+import hudson.security.GlobalMatrixAuthorizationStrategy;
+import hudson.util.FormValidation;
+import jenkins.plugins.slideshow.PluginImpl;
+import jenkins.plugins.slideshow.UrlProxy;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+import java.net.HttpURLConnection;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests for what {@link UrlPage} lets the server fetch.
+ *
+ * @author Robert Sandell &lt;sandell.robert@gmail.com&gt;
+ */
+public class UrlPageTest extends HudsonTestCase {
+
+    /**
+     * Tests that only relative, http and https URLs can be configured.
+     */
+    public void testCheckUrl() {
+        UrlPage.UrlPageDescriptor descriptor = hudson.getDescriptorByType(UrlPage.UrlPageDescriptor.class);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckUrl("http://example.com/").kind);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckUrl("https://example.com/a?b=c").kind);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckUrl("job/foo/").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckUrl("file:///etc/passwd").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckUrl("ftp://example.com/").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckUrl("http://exa mple.com/").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckUrl("").kind);
+    }
+
+    /**
+     * Tests that the proxy refuses URLs it isn't allowed to fetch, even if they are already configured.
+     *
+     * @throws Exception if so.
+     */
+    public void testProxyRefusesFileUrls() throws Exception {
+        addShow("Files", "file:///etc/passwd");
+        WebClient client = new WebClient();
+        client.setThrowExceptionOnFailingStatusCode(false);
+        WebResponse response = client.getPage(getURL() + "slideShows/show/Files/page/0/proxy").getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_FORBIDDEN, response.getStatusCode());
+    }
+
+    /**
+     * Tests that proxied responses are sandboxed, so that they don't run as Jenkins.
+     *
+     * @throws Exception if so.
+     */
+    public void testProxiedResponseIsSandboxed() throws Exception {
+        addShow("Local", "api/json");
+        WebClient client = new WebClient();
+        WebResponse response = client.getPage(getURL() + "slideShows/show/Local/page/0/proxy").getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        assertEquals(UrlProxy.CONTENT_SECURITY_POLICY, response.getResponseHeaderValue("Content-Security-Policy"));
+    }
+
+    /**
+     * Tests that the proxy needs read access to Jenkins.
+     *
+     * @throws Exception if so.
+     */
+    public void testProxyRequiresRead() throws Exception {
+        addShow("Secret", "api/json");
+        hudson.setSecurityRealm(createDummySecurityRealm());
+        hudson.setAuthorizationStrategy(new GlobalMatrixAuthorizationStrategy());
+        WebClient client = new WebClient();
+        client.setThrowExceptionOnFailingStatusCode(false);
+        WebResponse response = client.getPage(getURL() + "slideShows/show/Secret/page/0/proxy").getWebResponse();
+        assertEquals(HttpURLConnection.HTTP_FORBIDDEN, response.getStatusCode());
+    }
+
+    /**
+     * Adds a show with one proxied url page.
+     *
+     * @param name the name of the show.
+     * @param url  the url of the page.
+     */
+    private void addShow(String name, String url) {
+        List<Page> pages = new LinkedList<Page>();
+        pages.add(new UrlPage(null, null, url, new UrlPage.Proxy(0)));
+        PluginImpl.getInstance().addShow(new SlideShow(name, pages));
+    }
+}